@@ -0,0 +1,61 @@
+#!/usr/bin/env sh
+# Measures JVM startup and time to first HTTP response for a backend launch command.
+#
+# Usage:
+#   scripts/measure-startup.sh <url> <command> [args...]
+#
+# Examples:
+#   scripts/measure-startup.sh http://localhost:8081/api/chargers/stats \
+#       java -jar target/backend.jar
+#   scripts/measure-startup.sh http://localhost:8081/api/chargers/stats \
+#       java -Dspring.aot.enabled=true -jar target/backend.jar
+#
+# Prints the "Started ... in N seconds" line reported by Spring Boot and the
+# wall-clock time from launch until the URL first answers (any HTTP status).
+
+set -u
+
+if [ "$#" -lt 2 ]; then
+    echo "Usage: $0 <url> <command> [args...]" >&2
+    exit 1
+fi
+
+URL="$1"
+shift
+LOG="$(mktemp)"
+TIMEOUT_SECONDS="${TIMEOUT_SECONDS:-120}"
+
+now_ms() {
+    date +%s%3N
+}
+
+START="$(now_ms)"
+"$@" >"$LOG" 2>&1 &
+PID=$!
+
+FIRST_RESPONSE=""
+while [ $(( $(now_ms) - START )) -lt $(( TIMEOUT_SECONDS * 1000 )) ]; do
+    CODE="$(curl -s -o /dev/null -w '%{http_code}' "$URL" 2>/dev/null)"
+    if [ -n "$CODE" ] && [ "$CODE" != "000" ]; then
+        FIRST_RESPONSE=$(( $(now_ms) - START ))
+        break
+    fi
+    if ! kill -0 "$PID" 2>/dev/null; then
+        break
+    fi
+    sleep 0.05
+done
+
+STARTED_LINE="$(grep -m1 'Started EvChargerBackendApplication' "$LOG" || true)"
+kill "$PID" 2>/dev/null
+wait "$PID" 2>/dev/null
+
+echo "command:             $*"
+echo "spring boot:         ${STARTED_LINE:-<no startup line found>}" | sed 's/.*\(Started .*\)/spring boot:         \1/'
+if [ -n "$FIRST_RESPONSE" ]; then
+    echo "first response (ms): $FIRST_RESPONSE (HTTP $CODE)"
+else
+    echo "first response:      none within ${TIMEOUT_SECONDS}s, see $LOG" >&2
+    exit 1
+fi
+rm -f "$LOG"
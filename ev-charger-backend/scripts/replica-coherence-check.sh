@@ -0,0 +1,72 @@
+#!/usr/bin/env sh
+# Checks that a write on one backend instance becomes visible to another
+# instance's change log tailer, and reports how long that took.
+#
+# Usage:
+#   ADMIN_EMAIL=... ADMIN_PASSWORD=... scripts/replica-coherence-check.sh <url-a> <url-b>
+#
+# Example (with docker-compose.replicas.yml):
+#   scripts/replica-coherence-check.sh http://localhost:8081 http://localhost:8082
+#
+# Creates one charger through instance A, then polls /api/admin/changes/status
+# on instance B until its watermark has passed A's cursor after the write.
+# Exits non-zero if that does not happen within TIMEOUT_SECONDS (default 10).
+
+set -u
+
+if [ "$#" -ne 2 ]; then
+    echo "Usage: $0 <url-a> <url-b>" >&2
+    exit 1
+fi
+: "${ADMIN_EMAIL:?ADMIN_EMAIL is required}"
+: "${ADMIN_PASSWORD:?ADMIN_PASSWORD is required}"
+
+A="$1"
+B="$2"
+TIMEOUT_SECONDS="${TIMEOUT_SECONDS:-10}"
+
+now_ms() {
+    date +%s%3N
+}
+
+json_number() {
+    sed -n "s/.*\"$1\":\([0-9-]*\).*/\1/p"
+}
+
+TOKEN="$(curl -s -H 'Content-Type: application/json' \
+    -d "{\"email\":\"$ADMIN_EMAIL\",\"password\":\"$ADMIN_PASSWORD\"}" \
+    "$A/api/auth/login" | sed -n 's/.*"token":"\([^"]*\)".*/\1/p')"
+if [ -z "$TOKEN" ]; then
+    echo "Login on $A failed" >&2
+    exit 1
+fi
+
+status() {
+    curl -s -H "Authorization: Bearer $TOKEN" "$1/api/admin/changes/status"
+}
+
+BEFORE="$(status "$A" | json_number cursor)"
+START="$(now_ms)"
+curl -s -o /dev/null -H 'Content-Type: application/json' -H "Authorization: Bearer $TOKEN" \
+    -d "{\"name\":\"Coherence check $START\",\"latitude\":$((START % 80)).$((START % 997)),\"longitude\":$((START % 170)).$((START % 991)),\"status\":\"AVAILABLE\",\"enabled\":true}" \
+    "$A/api/chargers"
+
+# A polls its own log too; wait until its cursor includes the write
+TARGET=""
+while [ $(( $(now_ms) - START )) -lt $(( TIMEOUT_SECONDS * 1000 )) ]; do
+    TARGET="$(status "$A" | json_number cursor)"
+    [ -n "$TARGET" ] && [ "$TARGET" -gt "${BEFORE:-0}" ] && break
+    sleep 0.1
+done
+
+while [ $(( $(now_ms) - START )) -lt $(( TIMEOUT_SECONDS * 1000 )) ]; do
+    SEEN="$(status "$B" | json_number watermark)"
+    if [ -n "$SEEN" ] && [ -n "$TARGET" ] && [ "$SEEN" -ge "$TARGET" ]; then
+        echo "Instance B reached change $TARGET after $(( $(now_ms) - START )) ms"
+        exit 0
+    fi
+    sleep 0.1
+done
+
+echo "Instance B did not reach change ${TARGET:-?} within ${TIMEOUT_SECONDS}s" >&2
+exit 1
@@ -1,19 +1,52 @@
 package com.evfinder.controller;
 
+import com.evfinder.dto.BulkOperationRequest;
 import com.evfinder.dto.BulkToggleRequest;
+import com.evfinder.dto.ChangeFeed;
+import com.evfinder.dto.MessageResponse;
 import com.evfinder.model.ActivityLog;
+import com.evfinder.model.ActivityLogDaily;
 import com.evfinder.model.Charger;
+import com.evfinder.model.ChargerOccupancyHourly;
 import com.evfinder.model.User;
+import com.evfinder.repository.ActivityLogDailyRepository;
 import com.evfinder.repository.ActivityLogRepository;
+import com.evfinder.repository.ChargerOccupancyHourlyRepository;
 import com.evfinder.repository.ChargerRepository;
 import com.evfinder.repository.UserRepository;
+import com.evfinder.service.ActivityLogService;
+import com.evfinder.service.BackgroundJob;
+import com.evfinder.service.BulkOperationService;
+import com.evfinder.service.ChangeFeedService;
+import com.evfinder.service.ChangeLogService;
+import com.evfinder.service.ChangeLogTailer;
+import com.evfinder.service.ChargerImportService;
+import com.evfinder.service.ChargerSnapshotStore;
+import com.evfinder.service.JobRegistry;
+import com.evfinder.service.NearbyResponseCache;
+import com.evfinder.service.StatusHistoryService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -35,6 +68,45 @@ public class AdminController {
     @Autowired
     PasswordEncoder encoder;
 
+    @Autowired
+    ChargerImportService chargerImportService;
+
+    @Autowired
+    JobRegistry jobRegistry;
+
+    @Autowired
+    BulkOperationService bulkOperationService;
+
+    @Autowired
+    ActivityLogService activityLogService;
+
+    @Autowired
+    ActivityLogDailyRepository activityLogDailyRepository;
+
+    @Autowired
+    ChangeLogService changeLogService;
+
+    @Autowired
+    ChangeLogTailer changeLogTailer;
+
+    @Autowired
+    StatusHistoryService statusHistoryService;
+
+    @Autowired
+    NearbyResponseCache nearbyResponseCache;
+
+    @Autowired
+    ChargerSnapshotStore chargerSnapshotStore;
+
+    @Autowired
+    ChangeFeedService changeFeedService;
+
+    @Autowired
+    ChargerOccupancyHourlyRepository chargerOccupancyHourlyRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
     private String getCurrentAdminEmail() {
         try {
             var auth = SecurityContextHolder.getContext().getAuthentication();
@@ -44,15 +116,57 @@ public class AdminController {
         }
     }
 
+    /**
+     * Logs an admin action. Inside a write transaction the entry is written
+     * after commit in its own transaction, so a logging failure can neither
+     * roll back the change nor be logged for a change that did not commit.
+     */
     private void logActivity(String action, String entityType, String entityId, String details) {
+        ActivityLog entry = new ActivityLog(getCurrentAdminEmail(), action, entityType, entityId, details);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    saveActivity(entry);
+                }
+            });
+        } else {
+            saveActivity(entry);
+        }
+    }
+
+    private void saveActivity(ActivityLog entry) {
         try {
-            activityLogRepository.save(new ActivityLog(getCurrentAdminEmail(), action, entityType, entityId, details));
+            TransactionTemplate template = new TransactionTemplate(transactionManager);
+            template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            template.executeWithoutResult(status -> activityLogRepository.save(entry));
         } catch (Exception e) {
             // Silently fail logging to avoid breaking core functionality
             System.err.println("Failed to log activity: " + e.getMessage());
         }
     }
 
+    private BulkOperationRequest toggleOperation(BulkToggleRequest request) {
+        BulkOperationRequest operation = new BulkOperationRequest();
+        operation.setOperation("TOGGLE");
+        operation.setIds(request.getIds());
+        operation.setEnabled(request.getEnabled());
+        return operation;
+    }
+
+    private ResponseEntity<?> runBulk(BulkOperationService.Target target, BulkOperationRequest request) {
+        try {
+            BulkOperationService.Outcome outcome = bulkOperationService.execute(target, request,
+                    getCurrentAdminEmail());
+            if (outcome.job() != null) {
+                return ResponseEntity.accepted().body(outcome.job());
+            }
+            return ResponseEntity.ok(Map.of("affected", outcome.affected()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
     // USER MANAGEMENT
 
     @GetMapping("/users")
@@ -68,6 +182,7 @@ public class AdminController {
     }
 
     @PostMapping("/users")
+    @Transactional
     public User createUser(@RequestBody User user) {
         user.setPassword(encoder.encode(user.getPassword()));
         if (user.getRole() == null)
@@ -75,11 +190,13 @@ public class AdminController {
         if (user.getEnabled() == null)
             user.setEnabled(true);
         User savedUser = userRepository.save(user);
+        changeLogService.record(ChangeLogService.USER, savedUser.getId(), ChangeLogService.UPSERT);
         logActivity("CREATE", "USER", savedUser.getId().toString(), "Created user: " + savedUser.getEmail());
         return savedUser;
     }
 
     @PutMapping("/users/{id}")
+    @Transactional
     public ResponseEntity<User> updateUser(@PathVariable Long id, @RequestBody User userDetails) {
         return userRepository.findById(id).map(user -> {
             user.setName(userDetails.getName());
@@ -89,27 +206,32 @@ public class AdminController {
                 user.setPassword(encoder.encode(userDetails.getPassword()));
             }
             User updatedUser = userRepository.save(user);
+            changeLogService.record(ChangeLogService.USER, id, ChangeLogService.UPSERT);
             logActivity("UPDATE", "USER", id.toString(), "Updated user details for: " + updatedUser.getEmail());
             return ResponseEntity.ok(updatedUser);
         }).orElse(ResponseEntity.notFound().build());
     }
 
     @DeleteMapping("/users/{id}")
+    @Transactional
     public ResponseEntity<?> deleteUser(@PathVariable Long id) {
         return userRepository.findById(id).map(user -> {
             String email = user.getEmail();
             userRepository.delete(user);
+            changeLogService.record(ChangeLogService.USER, id, ChangeLogService.DELETE);
             logActivity("DELETE", "USER", id.toString(), "Deleted user: " + email);
             return ResponseEntity.ok().build();
         }).orElse(ResponseEntity.notFound().build());
     }
 
     @PatchMapping("/users/{id}/toggle")
+    @Transactional
     public ResponseEntity<User> toggleUserStatus(@PathVariable Long id) {
         return userRepository.findById(id).map(user -> {
             boolean currentStatus = Boolean.TRUE.equals(user.getEnabled());
             user.setEnabled(!currentStatus);
             User updatedUser = userRepository.save(user);
+            changeLogService.record(ChangeLogService.USER, id, ChangeLogService.UPSERT);
             logActivity("TOGGLE", "USER", id.toString(),
                     "Toggled status to " + updatedUser.getEnabled() + " for: " + updatedUser.getEmail());
             return ResponseEntity.ok(updatedUser);
@@ -122,26 +244,23 @@ public class AdminController {
             return ResponseEntity.badRequest()
                     .body(Map.of("message", "Invalid request: ids and enabled status are required"));
         }
+        return runBulk(BulkOperationService.Target.USER, toggleOperation(request));
+    }
 
-        List<User> allSelectedUsers = userRepository.findAllById(request.getIds());
-        List<User> usersToToggle = allSelectedUsers.stream()
-                .filter(u -> !"ADMIN".equals(u.getRole()))
-                .collect(Collectors.toList());
-
-        if (usersToToggle.isEmpty()) {
-            return ResponseEntity.ok().body(Map.of("message", "No non-admin users found for the provided IDs"));
-        }
-
-        usersToToggle.forEach(u -> u.setEnabled(request.getEnabled()));
-        userRepository.saveAll(usersToToggle);
-        logActivity("BULK_TOGGLE", "USER", "N/A",
-                "Bulk toggled status to " + request.getEnabled() + " for " + usersToToggle.size()
-                        + " users (Admin users skipped)");
-        return ResponseEntity.ok().build();
+    @PostMapping("/users/bulk")
+    public ResponseEntity<?> bulkUserOperation(@RequestBody BulkOperationRequest request) {
+        return runBulk(BulkOperationService.Target.USER, request);
     }
 
     // CHARGER MANAGEMENT
 
+    // Chargers are unique by coordinates
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<MessageResponse> handleDuplicate(DataIntegrityViolationException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(new MessageResponse("Error: a charger already exists at these coordinates"));
+    }
+
     @GetMapping("/chargers")
     public List<Charger> getAllChargers(@RequestParam(required = false) String search) {
         if (search != null && !search.isEmpty()) {
@@ -155,15 +274,19 @@ public class AdminController {
     }
 
     @PostMapping("/chargers")
+    @Transactional
     public Charger createCharger(@RequestBody Charger charger) {
         if (charger.getEnabled() == null)
             charger.setEnabled(true);
         Charger savedCharger = chargerRepository.save(charger);
+        changeLogService.record(ChangeLogService.CHARGER, savedCharger.getId(), ChangeLogService.UPSERT);
+        statusHistoryService.recordAll(List.of(savedCharger));
         logActivity("CREATE", "CHARGER", savedCharger.getId().toString(), "Created charger: " + savedCharger.getName());
         return savedCharger;
     }
 
     @PutMapping("/chargers/{id}")
+    @Transactional
     public ResponseEntity<Charger> updateCharger(@PathVariable Long id, @RequestBody Charger chargerDetails) {
         return chargerRepository.findById(id).map(charger -> {
             charger.setName(chargerDetails.getName());
@@ -175,27 +298,36 @@ public class AdminController {
             charger.setStatus(chargerDetails.getStatus());
             charger.setPricePerKwh(chargerDetails.getPricePerKwh());
             Charger updatedCharger = chargerRepository.save(charger);
+            changeLogService.record(ChangeLogService.CHARGER, id, ChangeLogService.UPSERT);
+            statusHistoryService.recordAll(List.of(updatedCharger));
             logActivity("UPDATE", "CHARGER", id.toString(), "Updated charger: " + updatedCharger.getName());
             return ResponseEntity.ok(updatedCharger);
         }).orElse(ResponseEntity.notFound().build());
     }
 
     @DeleteMapping("/chargers/{id}")
+    @Transactional
     public ResponseEntity<?> deleteCharger(@PathVariable Long id) {
         return chargerRepository.findById(id).map(charger -> {
             String name = charger.getName();
+            // Logged first so the entry can record where the charger was
+            changeLogService.record(ChangeLogService.CHARGER, id, ChangeLogService.DELETE);
             chargerRepository.delete(charger);
+            statusHistoryService.recordRemoved(List.of(id));
             logActivity("DELETE", "CHARGER", id.toString(), "Deleted charger: " + name);
             return ResponseEntity.ok().build();
         }).orElse(ResponseEntity.notFound().build());
     }
 
     @PatchMapping("/chargers/{id}/toggle")
+    @Transactional
     public ResponseEntity<Charger> toggleChargerStatus(@PathVariable Long id) {
         return chargerRepository.findById(id).map(charger -> {
             boolean currentStatus = Boolean.TRUE.equals(charger.getEnabled());
             charger.setEnabled(!currentStatus);
             Charger updatedCharger = chargerRepository.save(charger);
+            changeLogService.record(ChangeLogService.CHARGER, id, ChangeLogService.UPSERT);
+            statusHistoryService.recordAll(List.of(updatedCharger));
             logActivity("TOGGLE", "CHARGER", id.toString(),
                     "Toggled status to " + updatedCharger.getEnabled() + " for: " + updatedCharger.getName());
             return ResponseEntity.ok(updatedCharger);
@@ -208,17 +340,112 @@ public class AdminController {
             return ResponseEntity.badRequest()
                     .body(Map.of("message", "Invalid request: ids and enabled status are required"));
         }
+        return runBulk(BulkOperationService.Target.CHARGER, toggleOperation(request));
+    }
 
-        List<Charger> chargers = chargerRepository.findAllById(request.getIds());
-        if (chargers.isEmpty()) {
-            return ResponseEntity.ok().body(Map.of("message", "No chargers found for the provided IDs"));
+    @PostMapping("/chargers/bulk")
+    public ResponseEntity<?> bulkChargerOperation(@RequestBody BulkOperationRequest request) {
+        return runBulk(BulkOperationService.Target.CHARGER, request);
+    }
+
+    @PostMapping(value = "/chargers/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> importChargers(@RequestParam("file") MultipartFile file,
+            @RequestParam(required = false) String format) {
+        if (file == null || file.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Invalid request: a non-empty file is required"));
         }
+        try {
+            BackgroundJob job = chargerImportService.startImport(file, format, getCurrentAdminEmail());
+            return ResponseEntity.accepted().body(job);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError().body(Map.of("message", "Could not store upload: " + e.getMessage()));
+        }
+    }
 
-        chargers.forEach(c -> c.setEnabled(request.getEnabled()));
-        chargerRepository.saveAll(chargers);
-        logActivity("BULK_TOGGLE", "CHARGER", "N/A",
-                "Bulk toggled status to " + request.getEnabled() + " for " + chargers.size() + " chargers");
-        return ResponseEntity.ok().build();
+    // Large files are sent as the raw request body, outside the global multipart limit
+    @PostMapping(value = "/chargers/import", consumes = { "text/csv", "application/x-ndjson",
+            MediaType.APPLICATION_OCTET_STREAM_VALUE })
+    public ResponseEntity<?> importChargersFromBody(HttpServletRequest request,
+            @RequestParam(required = false) String format, @RequestParam(required = false) String fileName) {
+        try {
+            BackgroundJob job = chargerImportService.startImport(request.getInputStream(),
+                    request.getContentLengthLong(), request.getContentType(), format, fileName,
+                    getCurrentAdminEmail());
+            return ResponseEntity.accepted().body(job);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError().body(Map.of("message", "Could not store upload: " + e.getMessage()));
+        }
+    }
+
+    // BACKGROUND JOBS
+
+    @GetMapping("/jobs")
+    public List<BackgroundJob> getJobs() {
+        return jobRegistry.list();
+    }
+
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<BackgroundJob> getJob(@PathVariable String id) {
+        return jobRegistry.find(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Users and chargers changed since {@code since}, for the dashboard to
+     * patch its lists instead of reloading them.
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<?> getChanges(@RequestParam(required = false) Long since,
+            @RequestParam(required = false) Integer limit) {
+        ChangeFeed feed = changeFeedService.adminChanges(since, limit);
+        if (feed == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(new MessageResponse("Error: change feed is not available yet"));
+        }
+        return ResponseEntity.ok(feed);
+    }
+
+    @GetMapping("/changes/status")
+    public Map<String, Object> getChangeLogStatus() {
+        return changeLogTailer.getStatus();
+    }
+
+    @GetMapping("/cache/stats")
+    public Map<String, Object> getResponseCacheStats() {
+        return nearbyResponseCache.getStats();
+    }
+
+    @GetMapping("/snapshot")
+    public Map<String, Object> getSnapshotStatus() {
+        return chargerSnapshotStore.getStatus();
+    }
+
+    @GetMapping("/occupancy/heatmap")
+    public ResponseEntity<?> getOccupancyHeatmap(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Double minLat,
+            @RequestParam(required = false) Double maxLat,
+            @RequestParam(required = false) Double minLng,
+            @RequestParam(required = false) Double maxLng) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusDays(7);
+        if (!start.isBefore(end)) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Invalid request: from must be before to"));
+        }
+        return ResponseEntity.ok(statusHistoryService.heatmap(start, end, minLat, maxLat, minLng, maxLng));
+    }
+
+    @GetMapping("/chargers/{id}/occupancy")
+    public List<ChargerOccupancyHourly> getChargerOccupancy(@PathVariable Long id,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return chargerOccupancyHourlyRepository.findByChargerIdAndHourStartBetweenOrderByHourStart(id, from, to);
     }
 
     @GetMapping("/stats")
@@ -252,4 +479,26 @@ public class AdminController {
     public List<ActivityLog> getRecentLogs() {
         return activityLogRepository.findTop10ByOrderByTimestampDesc();
     }
+
+    @GetMapping("/logs/search")
+    public ResponseEntity<?> searchLogs(@RequestParam(required = false) String adminEmail,
+            @RequestParam(required = false) String action,
+            @RequestParam(required = false) String entityType,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        try {
+            return ResponseEntity.ok(activityLogService.search(adminEmail, action, entityType, from, to, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/logs/daily")
+    public List<ActivityLogDaily> getDailyLogCounts(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return activityLogDailyRepository.findByDayBetweenOrderByDayDesc(from, to);
+    }
 }
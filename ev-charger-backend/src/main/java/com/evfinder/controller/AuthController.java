@@ -7,6 +7,7 @@ import com.evfinder.dto.SignupRequest;
 import com.evfinder.model.User;
 import com.evfinder.repository.UserRepository;
 import com.evfinder.security.JwtUtils;
+import com.evfinder.service.ChangeLogService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -15,6 +16,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
@@ -32,6 +34,9 @@ public class AuthController {
     @Autowired
     JwtUtils jwtUtils;
 
+    @Autowired
+    ChangeLogService changeLogService;
+
     @PostMapping("/login")
     public ResponseEntity<?> authenticateUser(@RequestBody LoginRequest loginRequest) {
 
@@ -54,6 +59,7 @@ public class AuthController {
     }
 
     @PostMapping("/signup")
+    @Transactional
     public ResponseEntity<?> registerUser(@RequestBody SignupRequest signUpRequest) {
         if (userRepository.existsByEmail(signUpRequest.getEmail())) {
             return ResponseEntity
@@ -70,7 +76,8 @@ public class AuthController {
         // request
         user.setRole("DRIVER");
 
-        userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        changeLogService.record(ChangeLogService.USER, savedUser.getId(), ChangeLogService.UPSERT);
 
         return ResponseEntity.ok(new MessageResponse("User registered successfully!"));
     }
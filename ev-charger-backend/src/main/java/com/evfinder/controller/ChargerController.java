@@ -1,16 +1,37 @@
 package com.evfinder.controller;
 
+import com.evfinder.dto.ChangeFeed;
+import com.evfinder.dto.MessageResponse;
+import com.evfinder.dto.RouteChargerResult;
+import com.evfinder.dto.RouteSearchRequest;
 import com.evfinder.model.Charger;
 import com.evfinder.repository.ChargerRepository;
+import com.evfinder.repository.ChargerRepositoryCustom;
+import com.evfinder.service.ApiNinjasService;
+import com.evfinder.service.ChangeFeedService;
+import com.evfinder.service.ChangeLogService;
+import com.evfinder.service.ChargerSnapshotStore;
+import com.evfinder.service.NearbyResponseCache;
+import com.evfinder.service.StatusHistoryService;
+import com.evfinder.service.ViewportSyncService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/chargers")
 public class ChargerController {
+    private static final Logger logger = LoggerFactory.getLogger(ChargerController.class);
 
     @Autowired
     ChargerRepository chargerRepository;
@@ -18,49 +39,313 @@ public class ChargerController {
     @Autowired
     com.evfinder.service.ApiNinjasService apiNinjasService;
 
+    @Autowired
+    com.evfinder.service.RouteCorridorService routeCorridorService;
+
+    @Autowired
+    com.evfinder.service.DemandHeatmapService demandHeatmapService;
+
+    @Autowired
+    ChangeLogService changeLogService;
+
+    @Autowired
+    StatusHistoryService statusHistoryService;
+
+    @Autowired
+    NearbyResponseCache nearbyResponseCache;
+
+    @Autowired
+    ChargerSnapshotStore chargerSnapshotStore;
+
+    @Autowired
+    ChangeFeedService changeFeedService;
+
+    @Autowired
+    ViewportSyncService viewportSyncService;
+
     @GetMapping
-    public List<Charger> getAllChargers(
+    public ResponseEntity<?> getAllChargers(
             @RequestParam(required = false) String status,
             @RequestParam(required = false) String plugType,
             @RequestParam(required = false) Double lat,
-            @RequestParam(required = false) Double lng) {
+            @RequestParam(required = false) Double lng,
+            @RequestParam(required = false) String fields,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+
+        List<String> fieldList = parseFields(fields);
 
         if (lat != null && lng != null) {
             System.out.println("[CONTROLLER] Incoming coordinates: lat=" + lat + ", lng=" + lng);
-            // Fetch fresh data for this location (radius 25km)
-            apiNinjasService.fetchAndSaveChargers(lat, lng, 25.0);
+            demandHeatmapService.recordRequest(lat, lng);
+            // Fetch fresh data for this location (radius 25km) unless the area was synced recently
+            java.util.Set<Long> cells = demandHeatmapService.cellsWithin(lat, lng, 25.0);
+            if (!demandHeatmapService.isFresh(cells)) {
+                if (apiNinjasService.syncAround(lat, lng, 25.0)) {
+                    demandHeatmapService.markSynced(cells);
+                }
+            }
+            if (nearbyResponseCache.isEnabled()) {
+                return cachedNearby(lat, lng, fieldList, acceptsGzip(acceptEncoding));
+            }
+            if (fieldList != null) {
+                return projected(fieldList, null, null, lat, lng);
+            }
             List<Charger> results = chargerRepository.findNearbyChargers(lat, lng, 25.0);
             System.out
                     .println("[CONTROLLER] Returning " + results.size() + " enabled chargers near " + lat + "," + lng);
-            return results; // Already filtered by enabled=true in query
+            return ResponseEntity.ok(results); // Already filtered by enabled=true in query
         }
 
+        if (fieldList != null) {
+            return status != null
+                    ? projected(fieldList, status, null, null, null)
+                    : projected(fieldList, null, plugType, null, null);
+        }
         if (status != null) {
-            return chargerRepository.findByStatus(status).stream()
+            return ResponseEntity.ok(chargerRepository.findByStatus(status).stream()
                     .filter(c -> Boolean.TRUE.equals(c.getEnabled()))
-                    .collect(java.util.stream.Collectors.toList());
+                    .collect(java.util.stream.Collectors.toList()));
         }
         if (plugType != null) {
-            return chargerRepository.findByPlugType(plugType).stream()
+            return ResponseEntity.ok(chargerRepository.findByPlugType(plugType).stream()
                     .filter(c -> Boolean.TRUE.equals(c.getEnabled()))
-                    .collect(java.util.stream.Collectors.toList());
+                    .collect(java.util.stream.Collectors.toList()));
         }
         // Default: return only enabled chargers
-        return chargerRepository.findAll().stream()
+        return ResponseEntity.ok(chargerRepository.findAll().stream()
                 .filter(c -> Boolean.TRUE.equals(c.getEnabled()))
+                .collect(java.util.stream.Collectors.toList()));
+    }
+
+    /**
+     * Serves a nearby search from the cell cache. Misses load every candidate
+     * for the point's cell; the response is filtered and sorted from the point
+     * itself.
+     */
+    private ResponseEntity<byte[]> cachedNearby(double lat, double lng, List<String> fieldList, boolean gzip) {
+        double radiusKm = ApiNinjasService.DEFAULT_RADIUS_KM;
+        NearbyResponseCache.Key key = nearbyResponseCache.key(lat, lng, fieldList);
+        List<Object> results = nearbyResponseCache.get(key, lat, lng, radiusKm);
+        if (results == null) {
+            NearbyResponseCache.Load load = nearbyResponseCache.begin(key);
+            double cellLat = nearbyResponseCache.latitude(key);
+            double cellLng = nearbyResponseCache.longitude(key);
+            double loadRadiusKm = nearbyResponseCache.loadRadiusKm(radiusKm);
+            List<NearbyResponseCache.Candidate> candidates = new java.util.ArrayList<>();
+            if (fieldList != null) {
+                // Select id and position as well, for filtering and per-charger invalidation
+                List<String> selected = new java.util.ArrayList<>(fieldList);
+                for (String field : List.of("id", "latitude", "longitude")) {
+                    if (!selected.contains(field)) {
+                        selected.add(field);
+                    }
+                }
+                for (Map<String, Object> row : findProjected(selected, null, null, cellLat, cellLng, loadRadiusKm)) {
+                    Map<String, Object> value = new java.util.LinkedHashMap<>();
+                    fieldList.forEach(field -> value.put(field, row.get(field)));
+                    candidates.add(new NearbyResponseCache.Candidate((Long) row.get("id"),
+                            (Double) row.get("latitude"), (Double) row.get("longitude"), value));
+                }
+            } else {
+                for (Charger charger : chargerRepository.findNearbyChargers(cellLat, cellLng, loadRadiusKm)) {
+                    candidates.add(new NearbyResponseCache.Candidate(charger.getId(), charger.getLatitude(),
+                            charger.getLongitude(), charger));
+                }
+            }
+            results = nearbyResponseCache.put(load, candidates, lat, lng, radiusKm);
+        }
+        logger.debug("Returning {} enabled chargers near {},{}", results.size(), lat, lng);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            headers.add(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return new ResponseEntity<>(nearbyResponseCache.encode(results, gzip), headers, HttpStatus.OK);
+    }
+
+    /**
+     * True when the Accept-Encoding header lists gzip (or *) with a non-zero
+     * quality, e.g. {@code gzip, deflate} but not {@code gzip;q=0}.
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzip = null;
+        Double wildcard = null;
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.split(";");
+            String coding = params[0].trim().toLowerCase();
+            double quality = 1.0;
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (param.startsWith("q=") || param.startsWith("Q=")) {
+                    try {
+                        quality = Double.parseDouble(param.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0.0;
+                    }
+                }
+            }
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzip = quality;
+            } else if (coding.equals("*")) {
+                wildcard = quality;
+            }
+        }
+        if (gzip != null) {
+            return gzip > 0;
+        }
+        return wildcard != null && wildcard > 0;
+    }
+
+    /**
+     * Parses a comma-separated sparse fieldset such as {@code fields=id,latitude,longitude,status}.
+     * Returns null when no fieldset was requested.
+     */
+    private List<String> parseFields(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return null;
+        }
+        List<String> fieldList = java.util.Arrays.stream(fields.split(","))
+                .map(String::trim)
+                .filter(f -> !f.isEmpty())
+                .distinct()
                 .collect(java.util.stream.Collectors.toList());
+        for (String field : fieldList) {
+            if (!ChargerRepositoryCustom.PROJECTABLE_FIELDS.contains(field)) {
+                throw new InvalidFieldsException("Unknown field: " + field);
+            }
+        }
+        return fieldList.isEmpty() ? null : fieldList;
+    }
+
+    private ResponseEntity<?> projected(List<String> fields, String status, String plugType, Double lat, Double lng) {
+        return ResponseEntity.ok(findProjected(fields, status, plugType, lat, lng));
+    }
+
+    /**
+     * Marker-only fieldsets are answered from the in-memory charger snapshot
+     * once it is loaded; anything else goes to the database.
+     */
+    private List<Map<String, Object>> findProjected(List<String> fields, String status, String plugType, Double lat,
+            Double lng) {
+        return findProjected(fields, status, plugType, lat, lng, ApiNinjasService.DEFAULT_RADIUS_KM);
+    }
+
+    private List<Map<String, Object>> findProjected(List<String> fields, String status, String plugType, Double lat,
+            Double lng, double radiusKm) {
+        List<Map<String, Object>> rows = chargerSnapshotStore.findEnabledProjected(fields, status, plugType, lat, lng,
+                radiusKm);
+        return rows != null ? rows
+                : chargerRepository.findEnabledProjected(fields, status, plugType, lat, lng, radiusKm);
+    }
+
+    /**
+     * Thrown for an invalid {@code fields} parameter. Only this is mapped to a
+     * 400, so internal IllegalArgumentExceptions keep their usual handling.
+     */
+    static class InvalidFieldsException extends RuntimeException {
+        InvalidFieldsException(String message) {
+            super(message);
+        }
+    }
+
+    @ExceptionHandler(InvalidFieldsException.class)
+    public ResponseEntity<MessageResponse> handleInvalidFields(InvalidFieldsException e) {
+        return ResponseEntity.badRequest().body(new MessageResponse("Error: " + e.getMessage()));
+    }
+
+    // Chargers are unique by coordinates
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<MessageResponse> handleDuplicate(DataIntegrityViolationException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(new MessageResponse("Error: a charger already exists at these coordinates"));
+    }
+
+    @PostMapping("/route")
+    public ResponseEntity<?> getChargersAlongRoute(@RequestBody RouteSearchRequest request) {
+        if (request == null || request.getPolyline() == null || request.getPolyline().isBlank()) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Error: polyline is required"));
+        }
+        double corridorKm = request.getCorridorKm() != null ? request.getCorridorKm() : 2.0;
+        int precision = request.getPrecision() != null ? request.getPrecision() : 5;
+        if (corridorKm <= 0 || corridorKm > 50) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Error: corridorKm must be between 0 and 50"));
+        }
+        if (precision != 5 && precision != 6) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Error: precision must be 5 or 6"));
+        }
+
+        try {
+            List<RouteChargerResult> results = routeCorridorService.findAlongRoute(request.getPolyline(), corridorKm,
+                    precision);
+            logger.debug("Returning {} chargers within {}km of route", results.size(), corridorKm);
+            return ResponseEntity.ok(results);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Error: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Enabled chargers inside a map viewport, after syncing every stale part of
+     * it from API Ninjas in one parallel pass.
+     */
+    @GetMapping("/viewport")
+    public ResponseEntity<?> getViewportChargers(@RequestParam double minLat, @RequestParam double minLng,
+            @RequestParam double maxLat, @RequestParam double maxLng) {
+        ViewportSyncService.Result sync;
+        try {
+            sync = viewportSyncService.sync(minLat, minLng, maxLat, maxLng);
+        } catch (ViewportSyncService.InvalidViewportException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Error: " + e.getMessage()));
+        }
+        List<Charger> results = chargerRepository.findEnabledWithinBounds(minLat, maxLat, minLng, maxLng);
+        logger.debug("Returning {} enabled chargers in viewport ({} of {} tiles synced in {} ms)", results.size(),
+                sync.fetched(), sync.tiles(), sync.elapsedMs());
+        return ResponseEntity.ok(results);
+    }
+
+    /**
+     * Chargers changed since {@code since}, for map clients that already hold
+     * the nearby list. Chargers that left the area come back as deleted.
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<?> getChargerChanges(
+            @RequestParam(required = false) Long since,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) Double lat,
+            @RequestParam(required = false) Double lng) {
+        ChangeFeed feed = changeFeedService.chargerChanges(since, limit, lat, lng, ApiNinjasService.DEFAULT_RADIUS_KM);
+        if (feed == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(new MessageResponse("Error: change feed is not available yet"));
+        }
+        return ResponseEntity.ok(feed);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Charger> getChargerById(@PathVariable Long id) {
+    public ResponseEntity<?> getChargerById(@PathVariable Long id,
+            @RequestParam(required = false) String fields) {
+        List<String> fieldList = parseFields(fields);
+        if (fieldList != null) {
+            return chargerRepository.findProjectedById(id, fieldList)
+                    .<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        }
         return chargerRepository.findById(id)
-                .map(ResponseEntity::ok)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @PostMapping
+    @Transactional
     public Charger createCharger(@RequestBody Charger charger) {
-        return chargerRepository.save(charger);
+        Charger saved = chargerRepository.save(charger);
+        changeLogService.record(ChangeLogService.CHARGER, saved.getId(), ChangeLogService.UPSERT);
+        statusHistoryService.recordAll(List.of(saved));
+        return saved;
     }
 
     @GetMapping("/stats")
@@ -0,0 +1,24 @@
+package com.evfinder.controller;
+
+import com.evfinder.dto.PlaceSuggestion;
+import com.evfinder.service.PlaceSearchService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/places")
+public class PlaceController {
+
+    @Autowired
+    PlaceSearchService placeSearchService;
+
+    @GetMapping
+    public List<PlaceSuggestion> searchPlaces(@RequestParam String q,
+            @RequestParam(required = false) Double lat,
+            @RequestParam(required = false) Double lng,
+            @RequestParam(defaultValue = "5") int limit) {
+        return placeSearchService.search(q, lat, lng, limit);
+    }
+}
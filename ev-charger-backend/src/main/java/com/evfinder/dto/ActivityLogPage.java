@@ -0,0 +1,15 @@
+package com.evfinder.dto;
+
+import com.evfinder.model.ActivityLog;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ActivityLogPage {
+    private List<ActivityLog> items;
+    private String nextCursor; // null when there are no older entries
+}
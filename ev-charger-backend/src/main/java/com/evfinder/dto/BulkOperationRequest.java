@@ -0,0 +1,20 @@
+package com.evfinder.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkOperationRequest {
+    private String operation; // TOGGLE, DELETE, STATUS, PRICE for chargers; TOGGLE, ROLE for users
+    private List<Long> ids; // explicit selection
+    private ChargerSelection where; // criteria selection, chargers only
+
+    private Boolean enabled; // TOGGLE
+    private String status; // STATUS
+    private Double pricePerKwh; // PRICE
+    private String role; // ROLE
+}
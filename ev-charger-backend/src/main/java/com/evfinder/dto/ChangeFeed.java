@@ -0,0 +1,22 @@
+package com.evfinder.dto;
+
+import com.evfinder.model.Charger;
+import com.evfinder.model.User;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChangeFeed {
+    private long version; // pass back as since= on the next poll
+    private boolean resync; // the changes since the given version are gone; reload everything
+    private boolean hasMore; // more changes are waiting; poll again right away
+    private List<Charger> chargers = new ArrayList<>();
+    private List<Long> deletedChargerIds = new ArrayList<>();
+    private List<User> users = new ArrayList<>();
+    private List<Long> deletedUserIds = new ArrayList<>();
+}
@@ -0,0 +1,24 @@
+package com.evfinder.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Criteria selecting chargers for a bulk operation. Unset fields do not filter;
+ * a selection without any criteria must set {@code all} to act on every charger.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChargerSelection {
+    private String country;
+    private String status;
+    private String plugType;
+    private Boolean enabled;
+    private Double minLat;
+    private Double maxLat;
+    private Double minLng;
+    private Double maxLng;
+    private Boolean all;
+}
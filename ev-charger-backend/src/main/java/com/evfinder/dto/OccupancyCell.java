@@ -0,0 +1,17 @@
+package com.evfinder.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OccupancyCell {
+    private double latitude; // cell centre
+    private double longitude;
+    private long availableSeconds;
+    private long occupiedSeconds;
+    private long offlineSeconds;
+    private double availabilityRatio; // available / tracked time
+}
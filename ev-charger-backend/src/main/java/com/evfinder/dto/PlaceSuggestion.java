@@ -0,0 +1,17 @@
+package com.evfinder.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PlaceSuggestion {
+    private String id;
+    private String type; // LOCALITY, CHARGER, PLACE
+    private String name;
+    private String detail; // e.g. region and country
+    private Double latitude;
+    private Double longitude;
+}
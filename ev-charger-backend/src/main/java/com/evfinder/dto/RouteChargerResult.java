@@ -0,0 +1,15 @@
+package com.evfinder.dto;
+
+import com.evfinder.model.Charger;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RouteChargerResult {
+    private Charger charger;
+    private double distanceAlongRouteKm;
+    private double distanceFromRouteKm;
+}
@@ -0,0 +1,14 @@
+package com.evfinder.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RouteSearchRequest {
+    private String polyline; // Google encoded polyline of the driving route
+    private Double corridorKm; // Max distance from the route, defaults to 2km
+    private Integer precision; // Polyline precision, 5 (Google) or 6 (OSRM/Valhalla)
+}
@@ -7,7 +7,12 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "activity_logs")
+@Table(name = "activity_logs", indexes = {
+        @Index(name = "idx_activity_logs_ts", columnList = "timestamp, id"),
+        @Index(name = "idx_activity_logs_admin_ts", columnList = "admin_email, timestamp"),
+        @Index(name = "idx_activity_logs_action_ts", columnList = "action, timestamp"),
+        @Index(name = "idx_activity_logs_entity_ts", columnList = "entity_type, timestamp")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -16,9 +21,12 @@ public class ActivityLog {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    @Column(name = "admin_email")
     private String adminEmail;
     private String action; // CREATE, UPDATE, DELETE, TOGGLE
+    @Column(name = "entity_type")
     private String entityType; // USER, CHARGER
+    @Column(name = "entity_id")
     private String entityId;
     private String details;
     private LocalDateTime timestamp;
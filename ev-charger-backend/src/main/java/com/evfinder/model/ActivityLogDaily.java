@@ -0,0 +1,40 @@
+package com.evfinder.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDate;
+
+/**
+ * Daily count of activity log entries per admin, action and entity type. Raw
+ * entries older than the retention window are rolled up into this table and
+ * then deleted.
+ */
+@Entity
+@Table(name = "activity_log_daily", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_activity_log_daily", columnNames = { "day", "admin_email", "action", "entity_type" })
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ActivityLogDaily {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDate day;
+
+    @Column(name = "admin_email", nullable = false)
+    private String adminEmail;
+
+    @Column(nullable = false)
+    private String action;
+
+    @Column(name = "entity_type", nullable = false)
+    private String entityType;
+
+    @Column(name = "entry_count", nullable = false)
+    private Long entryCount;
+}
@@ -0,0 +1,45 @@
+package com.evfinder.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * Charger-seconds spent in each status during one hour, summed over all
+ * chargers in a lat/lng grid cell. Maintained alongside
+ * {@link ChargerOccupancyHourly}.
+ */
+@Entity
+@Table(name = "area_occupancy_hourly", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_area_occupancy_hourly", columnNames = { "area_row", "area_col", "hour_start" })
+}, indexes = {
+        @Index(name = "idx_area_occupancy_hour", columnList = "hour_start, area_row, area_col")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AreaOccupancyHourly {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "area_row", nullable = false)
+    private Integer areaRow;
+
+    @Column(name = "area_col", nullable = false)
+    private Integer areaCol;
+
+    @Column(name = "hour_start", nullable = false)
+    private LocalDateTime hourStart;
+
+    @Column(name = "available_seconds", nullable = false)
+    private Long availableSeconds;
+
+    @Column(name = "occupied_seconds", nullable = false)
+    private Long occupiedSeconds;
+
+    @Column(name = "offline_seconds", nullable = false)
+    private Long offlineSeconds;
+}
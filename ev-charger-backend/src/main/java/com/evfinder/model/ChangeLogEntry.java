@@ -0,0 +1,48 @@
+package com.evfinder.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * One row per change to a charger, user or synced area, written in the same
+ * transaction as the change itself. Every backend node tails this table to keep
+ * its in-process state in line with writes made on other nodes, and the
+ * change feeds serve its ids to clients as versions.
+ */
+@Entity
+@Table(name = "change_log", indexes = {
+        @Index(name = "idx_change_log_created", columnList = "created_at"),
+        @Index(name = "idx_change_log_type_id", columnList = "entity_type, id"),
+        @Index(name = "idx_change_log_type_entity", columnList = "entity_type, entity_id, id"),
+        @Index(name = "idx_change_log_type_op", columnList = "entity_type, operation, id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChangeLogEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "entity_type", nullable = false, length = 16)
+    private String entityType; // CHARGER, USER, AREA
+
+    @Column(name = "entity_id")
+    private Long entityId; // null means every entity of the type
+
+    @Column(nullable = false, length = 16)
+    private String operation; // UPSERT, DELETE
+
+    @Column(name = "origin_node", length = 64)
+    private String originNode;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    // Last position of a deleted charger, so area feeds can scope its tombstone
+    private Double latitude;
+    private Double longitude;
+}
@@ -1,12 +1,17 @@
 package com.evfinder.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
-@Table(name = "chargers")
+@Table(name = "chargers", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_chargers_lat_lng", columnNames = { "latitude", "longitude" })
+}, indexes = {
+        @Index(name = "idx_chargers_change_version", columnList = "change_version, latitude, longitude")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -32,4 +37,9 @@ public class Charger {
     private Double pricePerKwh;
 
     private Boolean enabled = true;
+
+    // Id of the latest change log entry for this charger; written by ChangeLogService only
+    @JsonIgnore
+    @Column(name = "change_version", insertable = false, updatable = false)
+    private Long changeVersion;
 }
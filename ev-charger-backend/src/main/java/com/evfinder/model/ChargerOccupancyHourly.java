@@ -0,0 +1,39 @@
+package com.evfinder.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * Seconds a charger spent in each status during one hour. Rows are added to
+ * incrementally as status intervals close and at every hour boundary.
+ */
+@Entity
+@Table(name = "charger_occupancy_hourly", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_charger_occupancy_hourly", columnNames = { "charger_id", "hour_start" })
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChargerOccupancyHourly {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "charger_id", nullable = false)
+    private Long chargerId;
+
+    @Column(name = "hour_start", nullable = false)
+    private LocalDateTime hourStart;
+
+    @Column(name = "available_seconds", nullable = false)
+    private Long availableSeconds;
+
+    @Column(name = "occupied_seconds", nullable = false)
+    private Long occupiedSeconds;
+
+    @Column(name = "offline_seconds", nullable = false)
+    private Long offlineSeconds;
+}
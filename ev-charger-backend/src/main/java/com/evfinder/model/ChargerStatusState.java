@@ -0,0 +1,37 @@
+package com.evfinder.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * The open status interval of each tracked charger: its current status, the
+ * area it counts towards, and how far that interval has already been added
+ * to the hourly occupancy rollups.
+ */
+@Entity
+@Table(name = "charger_status_state", indexes = {
+        @Index(name = "idx_status_state_accrued", columnList = "accrued_until")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChargerStatusState {
+    @Id
+    @Column(name = "charger_id")
+    private Long chargerId;
+
+    @Column(length = 16)
+    private String status;
+
+    @Column(name = "area_row")
+    private Integer areaRow;
+
+    @Column(name = "area_col")
+    private Integer areaCol;
+
+    @Column(name = "accrued_until", nullable = false)
+    private LocalDateTime accruedUntil;
+}
@@ -0,0 +1,37 @@
+package com.evfinder.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * Append-only record of a charger changing status. {@code fromStatus} is null
+ * for a newly tracked charger and {@code toStatus} is null when it is deleted.
+ */
+@Entity
+@Table(name = "charger_status_transitions", indexes = {
+        @Index(name = "idx_status_transitions_charger", columnList = "charger_id, changed_at"),
+        @Index(name = "idx_status_transitions_changed", columnList = "changed_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChargerStatusTransition {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "charger_id", nullable = false)
+    private Long chargerId;
+
+    @Column(name = "from_status", length = 16)
+    private String fromStatus;
+
+    @Column(name = "to_status", length = 16)
+    private String toStatus;
+
+    @Column(name = "changed_at", nullable = false)
+    private LocalDateTime changedAt;
+}
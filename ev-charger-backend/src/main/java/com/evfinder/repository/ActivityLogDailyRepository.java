@@ -0,0 +1,13 @@
+package com.evfinder.repository;
+
+import com.evfinder.model.ActivityLogDaily;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface ActivityLogDailyRepository extends JpaRepository<ActivityLogDaily, Long> {
+    List<ActivityLogDaily> findByDayBetweenOrderByDayDesc(LocalDate from, LocalDate to);
+}
@@ -0,0 +1,14 @@
+package com.evfinder.repository;
+
+import com.evfinder.model.ChargerOccupancyHourly;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ChargerOccupancyHourlyRepository extends JpaRepository<ChargerOccupancyHourly, Long> {
+    List<ChargerOccupancyHourly> findByChargerIdAndHourStartBetweenOrderByHourStart(
+            Long chargerId, LocalDateTime from, LocalDateTime to);
+}
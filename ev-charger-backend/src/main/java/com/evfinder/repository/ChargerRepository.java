@@ -7,13 +7,15 @@ import org.springframework.stereotype.Repository;
 import java.util.List;
 
 @Repository
-public interface ChargerRepository extends JpaRepository<Charger, Long> {
+public interface ChargerRepository extends JpaRepository<Charger, Long>, ChargerRepositoryCustom {
         List<Charger> findByStatus(String status);
 
         List<Charger> findByPlugType(String plugType);
 
         List<Charger> findByLatitudeAndLongitude(double latitude, double longitude);
 
+        List<Charger> findByLatitudeIn(java.util.Collection<Double> latitudes);
+
         @org.springframework.data.jpa.repository.Query(value = "SELECT * FROM chargers c WHERE " +
                         "c.enabled = true AND " +
                         "(6371 * acos(cos(radians(:lat)) * cos(radians(c.latitude)) * cos(radians(c.longitude) - radians(:lng)) + "
@@ -25,4 +27,11 @@ public interface ChargerRepository extends JpaRepository<Charger, Long> {
         List<Charger> findNearbyChargers(@org.springframework.data.repository.query.Param("lat") double lat,
                         @org.springframework.data.repository.query.Param("lng") double lng,
                         @org.springframework.data.repository.query.Param("distance") double distance);
+
+        @org.springframework.data.jpa.repository.Query("SELECT c FROM Charger c WHERE c.enabled = true AND " +
+                        "c.latitude BETWEEN :minLat AND :maxLat AND c.longitude BETWEEN :minLng AND :maxLng")
+        List<Charger> findEnabledWithinBounds(@org.springframework.data.repository.query.Param("minLat") double minLat,
+                        @org.springframework.data.repository.query.Param("maxLat") double maxLat,
+                        @org.springframework.data.repository.query.Param("minLng") double minLng,
+                        @org.springframework.data.repository.query.Param("maxLng") double maxLng);
 }
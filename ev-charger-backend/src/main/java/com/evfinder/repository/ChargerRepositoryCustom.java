@@ -0,0 +1,26 @@
+package com.evfinder.repository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Projection queries that select only the requested charger columns and return
+ * them as plain maps, never as managed entities.
+ */
+public interface ChargerRepositoryCustom {
+
+    Set<String> PROJECTABLE_FIELDS = Set.of("id", "name", "latitude", "longitude", "address", "country",
+            "plugType", "status", "pricePerKwh", "enabled");
+
+    /**
+     * Enabled chargers, optionally filtered by status, plug type or distance from
+     * a point (nearest first). {@code fields} must be a non-empty subset of
+     * {@link #PROJECTABLE_FIELDS}.
+     */
+    List<Map<String, Object>> findEnabledProjected(List<String> fields, String status, String plugType,
+            Double lat, Double lng, double radiusKm);
+
+    Optional<Map<String, Object>> findProjectedById(Long id, List<String> fields);
+}
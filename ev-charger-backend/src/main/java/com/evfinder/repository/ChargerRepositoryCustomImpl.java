@@ -0,0 +1,141 @@
+package com.evfinder.repository;
+
+import com.evfinder.model.Charger;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+public class ChargerRepositoryCustomImpl implements ChargerRepositoryCustom {
+
+    private static final double EARTH_RADIUS_KM = 6371;
+    private static final double KM_PER_DEGREE = 111.32;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Map<String, Object>> findEnabledProjected(List<String> fields, String status, String plugType,
+            Double lat, Double lng, double radiusKm) {
+        validate(fields);
+        boolean nearby = lat != null && lng != null;
+
+        // Distance filtering needs coordinates even when the caller did not ask for them
+        Set<String> selected = new LinkedHashSet<>(fields);
+        if (nearby) {
+            selected.add("latitude");
+            selected.add("longitude");
+        }
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<?> root = query.from(Charger.class);
+        query.multiselect(selections(root, selected));
+
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.isTrue(root.get("enabled")));
+        if (status != null) {
+            predicates.add(cb.equal(root.get("status"), status));
+        }
+        if (plugType != null) {
+            predicates.add(cb.equal(root.get("plugType"), plugType));
+        }
+        if (nearby) {
+            // Bounding box on the (latitude, longitude) index, exact distance below
+            double latDelta = radiusKm / KM_PER_DEGREE;
+            double lngDelta = latDelta / Math.max(Math.cos(Math.toRadians(lat)), 0.01);
+            predicates.add(cb.between(root.get("latitude"), lat - latDelta, lat + latDelta));
+            predicates.add(cb.between(root.get("longitude"), lng - lngDelta, lng + lngDelta));
+        }
+        query.where(predicates.toArray(new Predicate[0]));
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        if (!nearby) {
+            for (Tuple tuple : entityManager.createQuery(query).getResultList()) {
+                rows.add(toMap(tuple, fields));
+            }
+            return rows;
+        }
+
+        List<Object[]> withDistance = new ArrayList<>();
+        for (Tuple tuple : entityManager.createQuery(query).getResultList()) {
+            Double rowLat = tuple.get("latitude", Double.class);
+            Double rowLng = tuple.get("longitude", Double.class);
+            if (rowLat == null || rowLng == null) {
+                continue;
+            }
+            double distance = haversineKm(lat, lng, rowLat, rowLng);
+            if (distance <= radiusKm) {
+                withDistance.add(new Object[] { distance, toMap(tuple, fields) });
+            }
+        }
+        withDistance.sort(Comparator.comparingDouble(entry -> (Double) entry[0]));
+        for (Object[] entry : withDistance) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> row = (Map<String, Object>) entry[1];
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    @Override
+    public Optional<Map<String, Object>> findProjectedById(Long id, List<String> fields) {
+        validate(fields);
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<?> root = query.from(Charger.class);
+        query.multiselect(selections(root, fields)).where(cb.equal(root.get("id"), id));
+        return entityManager.createQuery(query).getResultList().stream()
+                .findFirst()
+                .map(tuple -> toMap(tuple, fields));
+    }
+
+    private static void validate(List<String> fields) {
+        if (fields == null || fields.isEmpty()) {
+            throw new IllegalArgumentException("At least one field is required");
+        }
+        for (String field : fields) {
+            if (!PROJECTABLE_FIELDS.contains(field)) {
+                throw new IllegalArgumentException("Unknown field: " + field);
+            }
+        }
+    }
+
+    private static List<Selection<?>> selections(Root<?> root, Iterable<String> fields) {
+        List<Selection<?>> selections = new ArrayList<>();
+        for (String field : fields) {
+            selections.add(root.get(field).alias(field));
+        }
+        return selections;
+    }
+
+    private static Map<String, Object> toMap(Tuple tuple, List<String> fields) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (String field : fields) {
+            row.put(field, tuple.get(field));
+        }
+        return row;
+    }
+
+    private static double haversineKm(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                        * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.sqrt(a));
+    }
+}
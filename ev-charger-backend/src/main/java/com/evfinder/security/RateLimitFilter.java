@@ -0,0 +1,129 @@
+package com.evfinder.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rejects requests over the per-client limit of the first matching rule with
+ * 429 and a Retry-After header. Clients are identified by user name when
+ * authenticated, otherwise by remote address, with IPv6 addresses grouped by
+ * their /64 prefix (one host usually holds the whole prefix); each rule has
+ * its own buckets.
+ *
+ * Rules are configured as {@code pattern=requestsPerMinute/burst}, comma
+ * separated, most specific first, e.g.
+ * {@code /api/chargers/route=30/10,/api/chargers/**=120/40}.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitFilter.class);
+
+    private record Rule(String pattern, RateLimiter.Limit limit) {
+    }
+
+    private final RateLimiter rateLimiter;
+    private final List<Rule> rules;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    public RateLimitFilter(RateLimiter rateLimiter, String rules) {
+        this.rateLimiter = rateLimiter;
+        this.rules = parseRules(rules);
+    }
+
+    private static List<Rule> parseRules(String spec) {
+        List<Rule> rules = new ArrayList<>();
+        if (spec == null || spec.isBlank()) {
+            return rules;
+        }
+        for (String entry : spec.split(",")) {
+            String trimmed = entry.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            int eq = trimmed.lastIndexOf('=');
+            int slash = trimmed.lastIndexOf('/');
+            if (eq < 0 || slash < eq) {
+                throw new IllegalArgumentException("Invalid rate limit rule: " + trimmed);
+            }
+            rules.add(new Rule(trimmed.substring(0, eq).trim(), new RateLimiter.Limit(
+                    Integer.parseInt(trimmed.substring(eq + 1, slash).trim()),
+                    Integer.parseInt(trimmed.substring(slash + 1).trim()))));
+        }
+        return rules;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!"OPTIONS".equals(request.getMethod())) {
+            String path = request.getRequestURI().substring(request.getContextPath().length());
+            for (Rule rule : rules) {
+                if (pathMatcher.match(rule.pattern(), path)) {
+                    String client = clientKey(request);
+                    long waitNanos = rateLimiter.tryAcquire(rule.pattern() + "|" + client, rule.limit());
+                    if (waitNanos > 0) {
+                        reject(response, waitNanos, client, path);
+                        return;
+                    }
+                    break;
+                }
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private static String clientKey(HttpServletRequest request) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.isAuthenticated() && !(auth instanceof AnonymousAuthenticationToken)) {
+            return "user:" + auth.getName();
+        }
+        return "ip:" + addressKey(request.getRemoteAddr());
+    }
+
+    private static String addressKey(String address) {
+        if (address == null || address.indexOf(':') < 0) {
+            return address;
+        }
+        try {
+            byte[] bytes = InetAddress.getByName(address).getAddress();
+            if (bytes.length != 16) {
+                return address;
+            }
+            StringBuilder prefix = new StringBuilder();
+            for (int i = 0; i < 8; i += 2) {
+                prefix.append(Integer.toHexString(((bytes[i] & 0xFF) << 8) | (bytes[i + 1] & 0xFF))).append(':');
+            }
+            return prefix.append(":/64").toString();
+        } catch (UnknownHostException e) {
+            return address;
+        }
+    }
+
+    private static void reject(HttpServletResponse response, long waitNanos, String client, String path)
+            throws IOException {
+        long retryAfterSeconds = Math.max(1, (waitNanos + 999_999_999L) / 1_000_000_000L);
+        logger.debug("Rate limited {} on {} for {}s", client, path, retryAfterSeconds);
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"message\":\"Error: Too many requests, retry in " + retryAfterSeconds
+                + " seconds\"}");
+    }
+}
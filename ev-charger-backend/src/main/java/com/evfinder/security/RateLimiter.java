@@ -0,0 +1,138 @@
+package com.evfinder.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-key token buckets implemented with the generic cell rate algorithm: a
+ * bucket is a single "theoretical arrival time", updated with compare-and-set,
+ * so checks never lock. A bucket whose arrival time has passed is full again
+ * and is dropped by the idle sweep.
+ *
+ * The sweep only runs on its schedule, never on the request path. Once
+ * {@code max-keys} buckets exist, a new key makes room by evicting buckets from
+ * a bounded sample: the full (idle) ones, or else the one closest to full.
+ * New clients are therefore never turned away because the table is full; the
+ * worst case is that an evicted client starts again with a full bucket.
+ *
+ * Internal budgets that are not per client use a {@link Budget} of their own,
+ * so they can never be evicted by client traffic.
+ */
+@Component
+public class RateLimiter {
+
+    /**
+     * {@code requestsPerMinute} sustained, with up to {@code burst} requests at
+     * once.
+     */
+    public record Limit(int requestsPerMinute, int burst) {
+
+        long intervalNanos() {
+            return 60_000_000_000L / Math.max(1, requestsPerMinute);
+        }
+
+        long toleranceNanos() {
+            return intervalNanos() * (Math.max(1, burst) - 1);
+        }
+    }
+
+    /**
+     * A single bucket outside the per-client table.
+     */
+    public static final class Budget {
+        private final Limit limit;
+        private final AtomicLong bucket = new AtomicLong(System.nanoTime());
+
+        public Budget(Limit limit) {
+            this.limit = limit;
+        }
+
+        /**
+         * Takes one token. Returns 0 when allowed, otherwise the nanoseconds
+         * until a token will be available.
+         */
+        public long tryAcquire() {
+            return acquire(bucket, limit, System.nanoTime());
+        }
+    }
+
+    private static final int EVICTION_SAMPLE = 32;
+
+    @Value("${evfinder.rate-limit.max-keys:100000}")
+    private int maxKeys;
+
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * Takes one token for {@code key}. Returns 0 when the request is allowed,
+     * otherwise the nanoseconds until a token will be available.
+     */
+    public long tryAcquire(String key, Limit limit) {
+        long now = System.nanoTime();
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= maxKeys) {
+                evict(now);
+            }
+            bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+        return acquire(bucket, limit, now);
+    }
+
+    private static long acquire(AtomicLong bucket, Limit limit, long now) {
+        long interval = limit.intervalNanos();
+        long tolerance = limit.toleranceNanos();
+        while (true) {
+            long stored = bucket.get();
+            long tat = Math.max(stored, now);
+            long wait = tat - tolerance - now;
+            if (wait > 0) {
+                return wait;
+            }
+            if (bucket.compareAndSet(stored, tat + interval)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Removes the idle buckets among a bounded sample, or the fullest one if
+     * none of them is idle.
+     */
+    private void evict(long now) {
+        Iterator<Map.Entry<String, AtomicLong>> it = buckets.entrySet().iterator();
+        String fullest = null;
+        long fullestTat = Long.MAX_VALUE;
+        boolean removed = false;
+        for (int i = 0; i < EVICTION_SAMPLE && it.hasNext(); i++) {
+            Map.Entry<String, AtomicLong> entry = it.next();
+            long tat = entry.getValue().get();
+            if (tat - now <= 0) {
+                it.remove();
+                removed = true;
+            } else if (tat < fullestTat) {
+                fullestTat = tat;
+                fullest = entry.getKey();
+            }
+        }
+        if (!removed && fullest != null) {
+            buckets.remove(fullest);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${evfinder.rate-limit.sweep-interval-ms:60000}")
+    public void sweep() {
+        long now = System.nanoTime();
+        buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+}
@@ -27,9 +27,18 @@ public class SecurityConfig {
     @Autowired
     UserDetailsServiceImpl userDetailsService;
 
+    @Autowired
+    RateLimiter rateLimiter;
+
     @Value("${evfinder.cors.allowed-origins}")
     private String allowedOrigins;
 
+    @Value("${evfinder.rate-limit.enabled:true}")
+    private boolean rateLimitEnabled;
+
+    @Value("${evfinder.rate-limit.rules:}")
+    private String rateLimitRules;
+
     @Bean
     public AuthTokenFilter authenticationJwtTokenFilter() {
         return new AuthTokenFilter();
@@ -77,6 +86,7 @@ public class SecurityConfig {
                         .ignoringRequestMatchers(
                                 "/api/auth/**",
                                 "/api/chargers/**",
+                                "/api/places/**",
                                 "/api/health",
                                 "/actuator/health"
                         )
@@ -86,6 +96,7 @@ public class SecurityConfig {
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/api/auth/**").permitAll()
                         .requestMatchers("/api/chargers/**").permitAll()
+                        .requestMatchers("/api/places/**").permitAll()
                         .requestMatchers("/api/health").permitAll()
                         .requestMatchers("/actuator/health").permitAll() // if using Spring Boot Actuator
                         .requestMatchers("/api/admin/**").hasAuthority("ADMIN")
@@ -93,6 +104,10 @@ public class SecurityConfig {
 
         // http.authenticationProvider(authenticationProvider());
         http.addFilterBefore(authenticationJwtTokenFilter(), UsernamePasswordAuthenticationFilter.class);
+        if (rateLimitEnabled) {
+            // After JWT authentication so signed-in users are limited per account rather than per address
+            http.addFilterAfter(new RateLimitFilter(rateLimiter, rateLimitRules), AuthTokenFilter.class);
+        }
 
         return http.build();
     }
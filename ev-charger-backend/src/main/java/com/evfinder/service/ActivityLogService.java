@@ -0,0 +1,180 @@
+package com.evfinder.service;
+
+import com.evfinder.dto.ActivityLogPage;
+import com.evfinder.model.ActivityLog;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keyset-paged browsing of the activity log, and the retention job that rolls
+ * old entries up into daily counts.
+ */
+@Service
+public class ActivityLogService {
+    private static final Logger logger = LoggerFactory.getLogger(ActivityLogService.class);
+
+    static final int MAX_PAGE_SIZE = 200;
+
+    private static final String ROLLUP_SQL = "INSERT INTO activity_log_daily "
+            + "(day, admin_email, action, entity_type, entry_count) VALUES (?, ?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE entry_count = entry_count + VALUES(entry_count)";
+
+    @Value("${evfinder.logs.retention-days:90}")
+    private int retentionDays;
+
+    @Value("${evfinder.logs.retention-batch-size:5000}")
+    private int retentionBatchSize;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public ActivityLogService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Returns entries newest first. {@code cursor} is the {@code nextCursor} of
+     * the previous page; each page seeks directly past it on the
+     * (timestamp, id) index instead of skipping rows with an offset.
+     */
+    public ActivityLogPage search(String adminEmail, String action, String entityType, LocalDateTime from,
+            LocalDateTime to, String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ActivityLog> query = cb.createQuery(ActivityLog.class);
+        Root<ActivityLog> root = query.from(ActivityLog.class);
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (adminEmail != null && !adminEmail.isBlank()) {
+            predicates.add(cb.equal(root.get("adminEmail"), adminEmail));
+        }
+        if (action != null && !action.isBlank()) {
+            predicates.add(cb.equal(root.get("action"), action));
+        }
+        if (entityType != null && !entityType.isBlank()) {
+            predicates.add(cb.equal(root.get("entityType"), entityType));
+        }
+        if (from != null) {
+            predicates.add(cb.greaterThanOrEqualTo(root.get("timestamp"), from));
+        }
+        if (to != null) {
+            predicates.add(cb.lessThan(root.get("timestamp"), to));
+        }
+        if (cursor != null && !cursor.isBlank()) {
+            Object[] position = decodeCursor(cursor);
+            LocalDateTime timestamp = (LocalDateTime) position[0];
+            Long id = (Long) position[1];
+            predicates.add(cb.or(
+                    cb.lessThan(root.get("timestamp"), timestamp),
+                    cb.and(cb.equal(root.get("timestamp"), timestamp), cb.lessThan(root.get("id"), id))));
+        }
+
+        query.select(root)
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(cb.desc(root.get("timestamp")), cb.desc(root.get("id")));
+        List<ActivityLog> rows = entityManager.createQuery(query).setMaxResults(pageSize + 1).getResultList();
+
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = new ArrayList<>(rows.subList(0, pageSize));
+            ActivityLog last = rows.get(rows.size() - 1);
+            nextCursor = encodeCursor(last.getTimestamp(), last.getId());
+        }
+        return new ActivityLogPage(rows, nextCursor);
+    }
+
+    private static String encodeCursor(LocalDateTime timestamp, Long id) {
+        String raw = timestamp + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Object[] decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            return new Object[] { LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)) };
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    /**
+     * Rolls entries older than the retention window into activity_log_daily and
+     * deletes them, one bounded batch per transaction. Rows are claimed with
+     * SKIP LOCKED so replicas running the job at the same time never count an
+     * entry twice.
+     */
+    @Scheduled(cron = "${evfinder.logs.retention-cron:0 30 3 * * *}")
+    public void applyRetention() {
+        LocalDateTime cutoff = LocalDate.now().minusDays(retentionDays).atStartOfDay();
+        long total = 0;
+        int batch;
+        do {
+            batch = transactionTemplate.execute(status -> rollUpBatch(cutoff));
+            total += batch;
+        } while (batch == retentionBatchSize);
+        if (total > 0) {
+            logger.info("Rolled up and pruned {} activity log entries older than {}", total, cutoff);
+        }
+    }
+
+    private int rollUpBatch(LocalDateTime cutoff) {
+        List<Long> ids = new ArrayList<>(retentionBatchSize);
+        Map<List<Object>, Long> counts = new HashMap<>();
+        jdbcTemplate.query("SELECT id, timestamp, admin_email, action, entity_type FROM activity_logs "
+                + "WHERE timestamp < ? ORDER BY timestamp, id LIMIT ? FOR UPDATE SKIP LOCKED",
+                rs -> {
+                    ids.add(rs.getLong(1));
+                    LocalDate day = rs.getTimestamp(2).toLocalDateTime().toLocalDate();
+                    List<Object> key = List.of(day, valueOrEmpty(rs.getString(3)), valueOrEmpty(rs.getString(4)),
+                            valueOrEmpty(rs.getString(5)));
+                    counts.merge(key, 1L, Long::sum);
+                },
+                Timestamp.valueOf(cutoff), retentionBatchSize);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        List<Object[]> rollups = new ArrayList<>(counts.size());
+        counts.forEach((key, count) -> rollups.add(new Object[] {
+                Date.valueOf((LocalDate) key.get(0)), key.get(1), key.get(2), key.get(3), count }));
+        jdbcTemplate.batchUpdate(ROLLUP_SQL, rollups);
+        namedJdbcTemplate.update("DELETE FROM activity_logs WHERE id IN (:ids)", Map.of("ids", ids));
+        return ids.size();
+    }
+
+    private static String valueOrEmpty(String value) {
+        return value != null ? value : "";
+    }
+}
@@ -9,15 +9,28 @@ import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.client.RestTemplate;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class ApiNinjasService {
 
+    public static final double DEFAULT_RADIUS_KM = 25.0;
+
     @Value("${apininjas.api.key}")
     private String apiKey;
 
@@ -25,14 +38,66 @@ public class ApiNinjasService {
     private String apiUrl;
 
     private final ChargerRepository chargerRepository;
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final ChangeLogService changeLogService;
+    private final StatusHistoryService statusHistoryService;
+    private final ChargerSnapshotStore chargerSnapshotStore;
+    private final ChargerBatchWriter batchWriter;
+    private final TransactionTemplate transactionTemplate;
+    private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
-    public ApiNinjasService(ChargerRepository chargerRepository) {
+    public ApiNinjasService(ChargerRepository chargerRepository, ChangeLogService changeLogService,
+            StatusHistoryService statusHistoryService, ChargerSnapshotStore chargerSnapshotStore,
+            ChargerBatchWriter batchWriter, PlatformTransactionManager transactionManager) {
         this.chargerRepository = chargerRepository;
+        this.changeLogService = changeLogService;
+        this.statusHistoryService = statusHistoryService;
+        this.chargerSnapshotStore = chargerSnapshotStore;
+        this.batchWriter = batchWriter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Bounded so a stalled upstream call cannot hold a request or a viewport sync worker
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(5000);
+        requestFactory.setReadTimeout(15000);
+        this.restTemplate = new RestTemplate(requestFactory);
+    }
+
+    /**
+     * A charger as reported by API Ninjas, before it is matched to a stored one.
+     */
+    public record UpstreamCharger(String name, double latitude, double longitude, String address, String country,
+            String plugType, String status) {
+    }
+
+    public record SaveResult(List<Charger> inserted, int updated) {
     }
 
-    public List<Charger> fetchAndSaveChargers(double latParam, double lonParam, double distance) {
+    /**
+     * Fetches and saves the chargers around a point. Returns false when the
+     * upstream call or the save failed, in which case the area must not be
+     * treated as synced.
+     */
+    public boolean syncAround(double latParam, double lonParam, double distance) {
+        try {
+            List<UpstreamCharger> found = fetchChargers(latParam, lonParam, distance);
+            List<Charger> saved = saveAll(found).inserted();
+            if (!saved.isEmpty()) {
+                System.out.println("[SYNC] Successfully saved " + saved.size() + " new chargers to DB.");
+            } else {
+                System.out.println("[SYNC] No new unique chargers to save.");
+            }
+            return true;
+
+        } catch (Exception e) {
+            System.err.println("[SYNC] Critical Error: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Queries API Ninjas around a point. Failures are thrown to the caller.
+     */
+    public List<UpstreamCharger> fetchChargers(double latParam, double lonParam, double distance) throws Exception {
         // Removing 'limit' parameter as it is for premium users only and causing 400
         // error
         String url = String.format(java.util.Locale.US, "%s?lat=%f&lon=%f&distance=%f", apiUrl, latParam, lonParam,
@@ -44,72 +109,106 @@ public class ApiNinjasService {
         headers.set("X-Api-Key", apiKey);
         HttpEntity<String> entity = new HttpEntity<>(headers);
 
-        try {
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
-            System.out.println("[SYNC] API Ninjas Response Code: " + response.getStatusCode());
+        ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
+        System.out.println("[SYNC] API Ninjas Response Code: " + response.getStatusCode());
 
-            if (response.getBody() == null || response.getBody().isEmpty()) {
-                System.out.println("[SYNC] Empty response body from API Ninjas.");
-                return new ArrayList<>();
-            }
+        List<UpstreamCharger> found = new ArrayList<>();
+        if (response.getBody() == null || response.getBody().isEmpty()) {
+            System.out.println("[SYNC] Empty response body from API Ninjas.");
+            return found;
+        }
 
-            JsonNode root = objectMapper.readTree(response.getBody());
+        JsonNode root = objectMapper.readTree(response.getBody());
+        if (root.isArray()) {
+            System.out.println("[SYNC] Found " + root.size() + " chargers in API response.");
+            for (JsonNode node : root) {
+                try {
+                    String name = node.path("name").asText("Unknown Charger");
+                    double lat = node.path("latitude").asDouble();
+                    double lon = node.path("longitude").asDouble();
+                    String address = node.path("address").asText("");
+                    String country = node.path("country").asText("IN"); // Default to India if missing
+
+                    String plugType = "Unknown";
+                    JsonNode connections = node.path("connections");
+                    if (connections.isArray() && connections.size() > 0) {
+                        plugType = connections.get(0).path("type_name").asText("Unknown");
+                    }
 
-            List<Charger> newChargers = new ArrayList<>();
+                    String status = node.path("is_active").asBoolean(true) ? "AVAILABLE" : "OFFLINE";
+                    found.add(new UpstreamCharger(name, lat, lon, address, country, plugType, status));
+                } catch (Exception e) {
+                    System.err.println("[SYNC] Error parsing individual charger: " + e.getMessage());
+                }
+            }
+        } else {
+            System.out.println("[SYNC] Unexpected non-array response: " + response.getBody());
+        }
+        return found;
+    }
 
-            if (root.isArray()) {
-                System.out.println("[SYNC] Found " + root.size() + " chargers in API response.");
-                for (JsonNode node : root) {
-                    try {
-                        String name = node.path("name").asText("Unknown Charger");
-                        double lat = node.path("latitude").asDouble();
-                        double lon = node.path("longitude").asDouble();
-                        String address = node.path("address").asText("");
-                        String country = node.path("country").asText("IN"); // Default to India if missing
+    /**
+     * Stores upstream chargers in one transaction. Chargers are matched by exact
+     * coordinates (the first occurrence wins within the input): existing ones
+     * get the reported status and address, and are saved and logged only when
+     * those differ; new ones are batch-inserted with a localized default price.
+     */
+    public SaveResult saveAll(Collection<UpstreamCharger> found) {
+        Map<String, UpstreamCharger> unique = new LinkedHashMap<>();
+        for (UpstreamCharger upstream : found) {
+            unique.putIfAbsent(ChargerBatchWriter.coordinateKey(upstream.latitude(), upstream.longitude()), upstream);
+        }
+        if (unique.isEmpty()) {
+            return new SaveResult(new ArrayList<>(), 0);
+        }
 
-                        String plugType = "Unknown";
-                        JsonNode connections = node.path("connections");
-                        if (connections.isArray() && connections.size() > 0) {
-                            plugType = connections.get(0).path("type_name").asText("Unknown");
-                        }
+        // Persist updates, inserts and their change log entries in one transaction
+        List<Charger> updatedChargers = new ArrayList<>();
+        List<Charger> statusChangedChargers = new ArrayList<>();
+        List<Charger> newChargers = new ArrayList<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            Map<String, Charger> existing = new HashMap<>();
+            Set<Double> latitudes = new HashSet<>();
+            unique.values().forEach(u -> latitudes.add(u.latitude()));
+            for (Charger c : chargerRepository.findByLatitudeIn(latitudes)) {
+                existing.putIfAbsent(ChargerBatchWriter.coordinateKey(c.getLatitude(), c.getLongitude()), c);
+            }
 
-                        String status = node.path("is_active").asBoolean(true) ? "AVAILABLE" : "OFFLINE";
-
-                        // Check if charger exists (by name or exact coordinates)
-                        List<Charger> existing = chargerRepository.findByLatitudeAndLongitude(lat, lon);
-                        if (!existing.isEmpty()) {
-                            // Update existing charger status in real-time
-                            Charger c = existing.get(0);
-                            c.setStatus(status);
-                            c.setAddress(address);
-                            c.setCountry(country);
-                            chargerRepository.save(c);
-                        } else {
-                            // New charger found with localized default price (approx 15 INR)
-                            Charger charger = new Charger(null, name, lat, lon, address, country, plugType, status,
-                                    15.0, true);
-                            newChargers.add(charger);
+            for (Map.Entry<String, UpstreamCharger> entry : unique.entrySet()) {
+                UpstreamCharger u = entry.getValue();
+                Charger c = existing.get(entry.getKey());
+                if (c != null) {
+                    // Update existing charger status in real-time, but only touch
+                    // (and log) chargers the upstream actually reports differently
+                    boolean statusChanged = !Objects.equals(c.getStatus(), u.status());
+                    if (statusChanged || !Objects.equals(c.getAddress(), u.address())
+                            || !Objects.equals(c.getCountry(), u.country())) {
+                        c.setStatus(u.status());
+                        c.setAddress(u.address());
+                        c.setCountry(u.country());
+                        updatedChargers.add(c);
+                        if (statusChanged) {
+                            statusChangedChargers.add(c);
                         }
-                    } catch (Exception e) {
-                        System.err.println("[SYNC] Error parsing individual charger: " + e.getMessage());
                     }
+                } else {
+                    // New charger found with localized default price (approx 15 INR)
+                    newChargers.add(new Charger(null, u.name(), u.latitude(), u.longitude(), u.address(), u.country(),
+                            u.plugType(), u.status(), 15.0, true, null));
                 }
-            } else {
-                System.out.println("[SYNC] Unexpected non-array response: " + response.getBody());
             }
 
-            if (!newChargers.isEmpty()) {
-                List<Charger> saved = chargerRepository.saveAll(newChargers);
-                System.out.println("[SYNC] Successfully saved " + saved.size() + " new chargers to DB.");
-                return saved;
-            } else {
-                System.out.println("[SYNC] No new unique chargers to save.");
-                return new ArrayList<>();
-            }
-
-        } catch (Exception e) {
-            System.err.println("[SYNC] Critical Error: " + e.getMessage());
-            return new ArrayList<>();
-        }
+            List<Long> changedIds = new ArrayList<>();
+            chargerRepository.saveAll(updatedChargers).forEach(c -> changedIds.add(c.getId()));
+            changeLogService.recordAll(ChangeLogService.CHARGER, changedIds, ChangeLogService.UPSERT);
+            statusHistoryService.recordAll(statusChangedChargers);
+            // Joins this transaction; logs and records status history for the inserts itself
+            batchWriter.insertNew(newChargers);
+        });
+
+        List<Charger> inserted = newChargers.stream().filter(c -> c.getId() != null).collect(Collectors.toList());
+        chargerSnapshotStore.apply(updatedChargers);
+        chargerSnapshotStore.apply(inserted);
+        return new SaveResult(inserted, updatedChargers.size());
     }
 }
@@ -0,0 +1,357 @@
+package com.evfinder.service;
+
+import com.evfinder.dto.BulkOperationRequest;
+import com.evfinder.dto.ChargerSelection;
+import com.evfinder.model.ActivityLog;
+import com.evfinder.model.Charger;
+import com.evfinder.model.User;
+import com.evfinder.repository.ActivityLogRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaDelete;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Runs admin bulk operations as set-based statements instead of loading and
+ * saving each entity.
+ *
+ * Explicit id selections are applied as chunked {@code UPDATE ... WHERE id IN (...)}
+ * statements. Criteria selections walk the matching id range in fixed windows
+ * so no single statement locks the whole table. Rows already in the target
+ * state are excluded in SQL, and for users so are admins. Selections larger
+ * than {@link #ASYNC_THRESHOLD} ids, and all criteria selections, run as a
+ * {@link BackgroundJob}. Each chunk locks the ids it is about to change and
+ * writes them to the change log in the same transaction.
+ */
+@Service
+public class BulkOperationService {
+    private static final Logger logger = LoggerFactory.getLogger(BulkOperationService.class);
+
+    static final int ID_CHUNK_SIZE = 1000;
+    static final int ID_WINDOW = 5000;
+    static final int ASYNC_THRESHOLD = 5000;
+
+    private static final Set<String> CHARGER_OPERATIONS = Set.of("TOGGLE", "DELETE", "STATUS", "PRICE");
+    private static final Set<String> USER_OPERATIONS = Set.of("TOGGLE", "ROLE");
+    private static final Set<String> CHARGER_STATUSES = Set.of("AVAILABLE", "OCCUPIED", "OFFLINE");
+    private static final Set<String> USER_ROLES = Set.of("DRIVER", "ADMIN");
+
+    public enum Target {
+        CHARGER, USER
+    }
+
+    /**
+     * Either the number of affected rows (synchronous run) or the job that is
+     * carrying out the operation.
+     */
+    public record Outcome(long affected, BackgroundJob job) {
+    }
+
+    @FunctionalInterface
+    private interface Scope<T> {
+        Predicate build(CriteriaBuilder cb, Root<T> root);
+    }
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+    private final JobRegistry jobRegistry;
+    private final ActivityLogRepository activityLogRepository;
+    private final ChangeLogService changeLogService;
+    private final StatusHistoryService statusHistoryService;
+
+    public BulkOperationService(PlatformTransactionManager transactionManager, JobRegistry jobRegistry,
+            ActivityLogRepository activityLogRepository, ChangeLogService changeLogService,
+            StatusHistoryService statusHistoryService) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jobRegistry = jobRegistry;
+        this.activityLogRepository = activityLogRepository;
+        this.changeLogService = changeLogService;
+        this.statusHistoryService = statusHistoryService;
+    }
+
+    public Outcome execute(Target target, BulkOperationRequest request, String adminEmail) {
+        String operation = validate(target, request);
+        boolean byCriteria = request.getIds() == null;
+
+        if (!byCriteria && request.getIds().size() <= ASYNC_THRESHOLD) {
+            long affected = applyToIds(target, operation, request, request.getIds(), null);
+            logSummary(adminEmail, target, operation, request, affected);
+            return new Outcome(affected, null);
+        }
+
+        BackgroundJob job = jobRegistry.submit("BULK_" + operation + "_" + target, adminEmail, j -> {
+            long affected = 0;
+            try {
+                affected = byCriteria
+                        ? applyToSelection(operation, request, j)
+                        : applyToIds(target, operation, request, request.getIds(), j);
+                j.setMessage("Affected " + affected + " " + target.name().toLowerCase(Locale.ROOT) + "s");
+            } finally {
+                logSummary(adminEmail, target, operation, request, affected);
+            }
+        });
+        return new Outcome(0, job);
+    }
+
+    private String validate(Target target, BulkOperationRequest request) {
+        if (request == null || request.getOperation() == null) {
+            throw new IllegalArgumentException("Invalid request: operation is required");
+        }
+        String operation = request.getOperation().trim().toUpperCase(Locale.ROOT);
+        Set<String> allowed = target == Target.CHARGER ? CHARGER_OPERATIONS : USER_OPERATIONS;
+        if (!allowed.contains(operation)) {
+            throw new IllegalArgumentException("Unsupported operation for " + target + ": " + request.getOperation());
+        }
+        if (request.getIds() == null && (target == Target.USER || request.getWhere() == null)) {
+            throw new IllegalArgumentException(target == Target.USER
+                    ? "Invalid request: ids are required"
+                    : "Invalid request: ids or where criteria are required");
+        }
+        if (request.getIds() == null) {
+            require(hasCriteria(request.getWhere()) || Boolean.TRUE.equals(request.getWhere().getAll()),
+                    "where needs at least one criterion, or all=true to select every charger");
+        }
+        switch (operation) {
+            case "TOGGLE" -> require(request.getEnabled() != null, "enabled is required");
+            case "STATUS" -> require(request.getStatus() != null
+                    && CHARGER_STATUSES.contains(request.getStatus().toUpperCase(Locale.ROOT)),
+                    "status must be one of " + CHARGER_STATUSES);
+            case "PRICE" -> require(request.getPricePerKwh() != null && request.getPricePerKwh() >= 0,
+                    "pricePerKwh must be a non-negative number");
+            case "ROLE" -> require(request.getRole() != null
+                    && USER_ROLES.contains(request.getRole().toUpperCase(Locale.ROOT)),
+                    "role must be one of " + USER_ROLES);
+            default -> {
+            }
+        }
+        return operation;
+    }
+
+    private static boolean hasCriteria(ChargerSelection where) {
+        return where.getCountry() != null || where.getStatus() != null || where.getPlugType() != null
+                || where.getEnabled() != null || where.getMinLat() != null || where.getMaxLat() != null
+                || where.getMinLng() != null || where.getMaxLng() != null;
+    }
+
+    private static void require(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalArgumentException("Invalid request: " + message);
+        }
+    }
+
+    private long applyToIds(Target target, String operation, BulkOperationRequest request, List<Long> ids,
+            BackgroundJob job) {
+        List<Long> distinct = ids.stream().distinct().toList();
+        if (job != null) {
+            job.setTotal(distinct.size());
+        }
+        long affected = 0;
+        for (int from = 0; from < distinct.size(); from += ID_CHUNK_SIZE) {
+            List<Long> chunk = distinct.subList(from, Math.min(from + ID_CHUNK_SIZE, distinct.size()));
+            affected += target == Target.CHARGER
+                    ? applyToChargers(operation, request, (cb, root) -> root.get("id").in(chunk))
+                    : applyToUsers(operation, request, (cb, root) -> root.get("id").in(chunk));
+            if (job != null) {
+                job.addProcessed(chunk.size());
+                job.setProgress((double) (from + chunk.size()) / distinct.size());
+            }
+        }
+        if (job != null) {
+            job.addSucceeded(affected);
+        }
+        return affected;
+    }
+
+    private long applyToSelection(String operation, BulkOperationRequest request, BackgroundJob job) {
+        ChargerSelection where = request.getWhere();
+        Long[] range = idRange(where);
+        if (range == null) {
+            return 0;
+        }
+        long minId = range[0];
+        long maxId = range[1];
+        job.setTotal(maxId - minId + 1);
+
+        long affected = 0;
+        for (long lo = minId; lo <= maxId; lo += ID_WINDOW) {
+            long windowStart = lo;
+            long windowEnd = Math.min(lo + ID_WINDOW - 1, maxId);
+            int changed = applyToChargers(operation, request, (cb, root) -> cb.and(
+                    cb.between(root.get("id"), windowStart, windowEnd),
+                    selectionPredicate(cb, root, where)));
+            affected += changed;
+            job.addProcessed(windowEnd - windowStart + 1);
+            job.addSucceeded(changed);
+            job.setProgress((double) (windowEnd - minId + 1) / (maxId - minId + 1));
+        }
+        return affected;
+    }
+
+    private Long[] idRange(ChargerSelection where) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Object[]> query = cb.createQuery(Object[].class);
+        Root<Charger> root = query.from(Charger.class);
+        query.multiselect(cb.min(root.<Long>get("id")), cb.max(root.<Long>get("id")))
+                .where(selectionPredicate(cb, root, where));
+        Object[] row = entityManager.createQuery(query).getSingleResult();
+        if (row[0] == null) {
+            return null;
+        }
+        return new Long[] { (Long) row[0], (Long) row[1] };
+    }
+
+    private Predicate selectionPredicate(CriteriaBuilder cb, Root<Charger> root, ChargerSelection where) {
+        List<Predicate> predicates = new ArrayList<>();
+        if (where.getCountry() != null) {
+            predicates.add(cb.equal(root.get("country"), where.getCountry()));
+        }
+        if (where.getStatus() != null) {
+            predicates.add(cb.equal(root.get("status"), where.getStatus()));
+        }
+        if (where.getPlugType() != null) {
+            predicates.add(cb.equal(root.get("plugType"), where.getPlugType()));
+        }
+        if (where.getEnabled() != null) {
+            predicates.add(cb.equal(root.get("enabled"), where.getEnabled()));
+        }
+        if (where.getMinLat() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(root.get("latitude"), where.getMinLat()));
+        }
+        if (where.getMaxLat() != null) {
+            predicates.add(cb.lessThanOrEqualTo(root.get("latitude"), where.getMaxLat()));
+        }
+        if (where.getMinLng() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(root.get("longitude"), where.getMinLng()));
+        }
+        if (where.getMaxLng() != null) {
+            predicates.add(cb.lessThanOrEqualTo(root.get("longitude"), where.getMaxLng()));
+        }
+        return cb.and(predicates.toArray(new Predicate[0]));
+    }
+
+    private int applyToChargers(String operation, BulkOperationRequest request, Scope<Charger> scope) {
+        return transactionTemplate.execute(tx -> {
+            CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+            if ("DELETE".equals(operation)) {
+                List<Long> ids = lockIds(Charger.class, scope);
+                if (ids.isEmpty()) {
+                    return 0;
+                }
+                // Logged first so the entries can record where the chargers were
+                changeLogService.recordAll(ChangeLogService.CHARGER, ids, ChangeLogService.DELETE);
+                CriteriaDelete<Charger> delete = cb.createCriteriaDelete(Charger.class);
+                Root<Charger> root = delete.from(Charger.class);
+                delete.where(root.get("id").in(ids));
+                int deleted = entityManager.createQuery(delete).executeUpdate();
+                statusHistoryService.recordRemoved(ids);
+                return deleted;
+            }
+
+            Scope<Charger> changed = switch (operation) {
+                case "TOGGLE" -> (b, r) -> differs(b, r.get("enabled"), request.getEnabled());
+                case "STATUS" -> (b, r) -> differs(b, r.get("status"), request.getStatus().toUpperCase(Locale.ROOT));
+                default -> (b, r) -> differs(b, r.get("pricePerKwh"), request.getPricePerKwh());
+            };
+            List<Long> ids = lockIds(Charger.class, (b, r) -> b.and(scope.build(b, r), changed.build(b, r)));
+            if (ids.isEmpty()) {
+                return 0;
+            }
+            CriteriaUpdate<Charger> update = cb.createCriteriaUpdate(Charger.class);
+            Root<Charger> root = update.from(Charger.class);
+            switch (operation) {
+                case "TOGGLE" -> update.set(root.<Boolean>get("enabled"), request.getEnabled());
+                case "STATUS" -> update.set(root.<String>get("status"), request.getStatus().toUpperCase(Locale.ROOT));
+                default -> update.set(root.<Double>get("pricePerKwh"), request.getPricePerKwh());
+            }
+            update.where(root.get("id").in(ids));
+            int updated = entityManager.createQuery(update).executeUpdate();
+            changeLogService.recordAll(ChangeLogService.CHARGER, ids, ChangeLogService.UPSERT);
+            if (!"PRICE".equals(operation)) {
+                statusHistoryService.recordCurrent(ids);
+            }
+            return updated;
+        });
+    }
+
+    private int applyToUsers(String operation, BulkOperationRequest request, Scope<User> scope) {
+        return transactionTemplate.execute(tx -> {
+            CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+            boolean toggle = "TOGGLE".equals(operation);
+            String role = toggle ? null : request.getRole().toUpperCase(Locale.ROOT);
+            // Admin accounts are never touched by bulk operations
+            List<Long> ids = lockIds(User.class, (b, r) -> b.and(scope.build(b, r),
+                    b.or(b.isNull(r.get("role")), b.notEqual(r.get("role"), "ADMIN")),
+                    toggle ? differs(b, r.get("enabled"), request.getEnabled()) : differs(b, r.get("role"), role)));
+            if (ids.isEmpty()) {
+                return 0;
+            }
+            CriteriaUpdate<User> update = cb.createCriteriaUpdate(User.class);
+            Root<User> root = update.from(User.class);
+            if (toggle) {
+                update.set(root.<Boolean>get("enabled"), request.getEnabled());
+            } else {
+                update.set(root.<String>get("role"), role);
+            }
+            update.where(root.get("id").in(ids));
+            int updated = entityManager.createQuery(update).executeUpdate();
+            changeLogService.recordAll(ChangeLogService.USER, ids, ChangeLogService.UPSERT);
+            return updated;
+        });
+    }
+
+    /**
+     * Selects and row-locks the ids an operation will change, so the statement
+     * that follows and the change log entries cover exactly the same rows.
+     */
+    private <T> List<Long> lockIds(Class<T> entity, Scope<T> scope) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<T> root = query.from(entity);
+        query.select(root.<Long>get("id")).where(scope.build(cb, root));
+        return entityManager.createQuery(query).setLockMode(LockModeType.PESSIMISTIC_WRITE).getResultList();
+    }
+
+    private static Predicate differs(CriteriaBuilder cb, Path<?> column, Object value) {
+        return cb.or(cb.isNull(column), cb.notEqual(column, value));
+    }
+
+    private void logSummary(String adminEmail, Target target, String operation, BulkOperationRequest request,
+            long affected) {
+        String selection = request.getIds() != null
+                ? request.getIds().size() + " selected ids"
+                : "criteria " + request.getWhere();
+        String value = switch (operation) {
+            case "TOGGLE" -> " to " + request.getEnabled();
+            case "STATUS" -> " to " + request.getStatus();
+            case "PRICE" -> " to " + request.getPricePerKwh();
+            case "ROLE" -> " to " + request.getRole();
+            default -> "";
+        };
+        String noun = target == Target.CHARGER ? "chargers" : "users (Admin users skipped)";
+        try {
+            activityLogRepository.save(new ActivityLog(adminEmail, "BULK_" + operation, target.name(), "N/A",
+                    "Bulk " + operation.toLowerCase(Locale.ROOT) + value + " for " + affected + " " + noun
+                            + " from " + selection));
+        } catch (Exception e) {
+            logger.error("Failed to log bulk activity: {}", e.getMessage());
+        }
+    }
+}
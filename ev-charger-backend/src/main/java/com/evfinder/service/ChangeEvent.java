@@ -0,0 +1,12 @@
+package com.evfinder.service;
+
+/**
+ * A change read from the change log. {@code entityId} is null when every entity
+ * of the type should be treated as changed.
+ */
+public record ChangeEvent(long id, String entityType, Long entityId, String operation, String originNode) {
+
+    public boolean isDelete() {
+        return ChangeLogService.DELETE.equals(operation);
+    }
+}
@@ -0,0 +1,262 @@
+package com.evfinder.service;
+
+import com.evfinder.dto.ChangeFeed;
+import com.evfinder.model.Charger;
+import com.evfinder.model.User;
+import com.evfinder.repository.ChargerRepository;
+import com.evfinder.repository.UserRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Delta sync for polling clients. A version is a change log id: a feed
+ * returns the current state of every charger or user changed after the given
+ * version, or a tombstone for those deleted (or no longer visible to the
+ * caller), together with the version to poll from next.
+ *
+ * Feeds end at the change log tailer's watermark, so an entry whose
+ * transaction commits late is never skipped. The map feed reads only the
+ * chargers changed in the caller's area, by their {@code change_version}
+ * stamp, and the charger deletes logged there. Versions older than the
+ * retained change log get {@code resync}, as does a first poll without a
+ * version; the client then reloads its full list and polls from the
+ * returned version.
+ */
+@Service
+public class ChangeFeedService {
+
+    static final int DEFAULT_LIMIT = 500;
+    static final int MAX_LIMIT = 2000;
+    private static final double EARTH_RADIUS_KM = 6371;
+    private static final double KM_PER_DEGREE = 111.32;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final ChangeLogTailer changeLogTailer;
+    private final ChargerRepository chargerRepository;
+    private final UserRepository userRepository;
+
+    public ChangeFeedService(JdbcTemplate jdbcTemplate, ChangeLogTailer changeLogTailer,
+            ChargerRepository chargerRepository, UserRepository userRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.changeLogTailer = changeLogTailer;
+        this.chargerRepository = chargerRepository;
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * Charger changes for map clients. With a position, only chargers changed
+     * or deleted within the bounding box of {@code radiusKm} around it are
+     * read; those in the box that are disabled or outside the radius come back
+     * as tombstones. Returns null while the change log cannot be read.
+     */
+    public ChangeFeed chargerChanges(Long since, Integer limit, Double lat, Double lng, double radiusKm) {
+        long upTo = changeLogTailer.getWatermark();
+        if (upTo < 0) {
+            return null;
+        }
+        ChangeFeed feed = new ChangeFeed();
+        if (since == null || since < 0 || !covers(since, upTo)) {
+            feed.setVersion(upTo);
+            feed.setResync(true);
+            return feed;
+        }
+        if (since >= upTo) {
+            feed.setVersion(since);
+            return feed;
+        }
+        if (changedAll(since, upTo)) {
+            feed.setVersion(upTo);
+            feed.setResync(true);
+            return feed;
+        }
+
+        int size = limit != null ? Math.max(1, Math.min(limit, MAX_LIMIT)) : DEFAULT_LIMIT;
+        boolean nearby = lat != null && lng != null;
+        Map<String, Object> params = new HashMap<>();
+        params.put("since", since);
+        params.put("upTo", upTo);
+        params.put("limit", size);
+        params.put("type", ChangeLogService.CHARGER);
+        params.put("delete", ChangeLogService.DELETE);
+        String area = "";
+        if (nearby) {
+            double latDelta = radiusKm / KM_PER_DEGREE;
+            double lngDelta = latDelta / Math.max(Math.cos(Math.toRadians(lat)), 0.01);
+            params.put("minLat", lat - latDelta);
+            params.put("maxLat", lat + latDelta);
+            params.put("minLng", lng - lngDelta);
+            params.put("maxLng", lng + lngDelta);
+            area = " AND latitude BETWEEN :minLat AND :maxLat AND longitude BETWEEN :minLng AND :maxLng";
+        }
+        // Both lists are ordered by version, and versions are distinct change log ids
+        List<long[]> changed = namedJdbcTemplate.query("SELECT id, change_version FROM chargers "
+                + "WHERE change_version > :since AND change_version <= :upTo" + area
+                + " ORDER BY change_version LIMIT :limit", params,
+                (rs, i) -> new long[] { rs.getLong(1), rs.getLong(2) });
+        List<long[]> deleted = namedJdbcTemplate.query("SELECT entity_id, id FROM change_log "
+                + "WHERE entity_type = :type AND operation = :delete AND id > :since AND id <= :upTo" + area
+                + " ORDER BY id LIMIT :limit", params,
+                (rs, i) -> new long[] { rs.getLong(1), rs.getLong(2) });
+
+        List<long[]> merged = new ArrayList<>(changed.size() + deleted.size());
+        merged.addAll(changed);
+        merged.addAll(deleted);
+        merged.sort(Comparator.comparingLong(entry -> entry[1]));
+        if (changed.size() == size || deleted.size() == size) {
+            // Everything up to the size-th version is complete in both lists
+            merged = merged.subList(0, size);
+            feed.setHasMore(true);
+            feed.setVersion(merged.get(size - 1)[1]);
+        } else {
+            feed.setVersion(upTo);
+        }
+
+        Set<Long> chargerIds = new LinkedHashSet<>();
+        Set<Long> deletedIds = new LinkedHashSet<>();
+        Set<Long> changedIds = new HashSet<>();
+        changed.forEach(entry -> changedIds.add(entry[0]));
+        for (long[] entry : merged) {
+            (changedIds.contains(entry[0]) ? chargerIds : deletedIds).add(entry[0]);
+        }
+        // A charger that was deleted and is back under the same id is sent as it is now
+        deletedIds.removeAll(chargerIds);
+        for (Charger charger : chargerRepository.findAllById(chargerIds)) {
+            chargerIds.remove(charger.getId());
+            if (Boolean.TRUE.equals(charger.getEnabled()) && charger.getLatitude() != null
+                    && charger.getLongitude() != null
+                    && (!nearby || haversineKm(lat, lng, charger.getLatitude(), charger.getLongitude()) <= radiusKm)) {
+                feed.getChargers().add(charger);
+            } else {
+                deletedIds.add(charger.getId());
+            }
+        }
+        // Rows deleted since the query above
+        deletedIds.addAll(chargerIds);
+        feed.getDeletedChargerIds().addAll(deletedIds);
+        return feed;
+    }
+
+    /**
+     * Whether a change log entry after {@code since} marked every charger as
+     * changed.
+     */
+    private boolean changedAll(long since, long upTo) {
+        return !jdbcTemplate.queryForList("SELECT id FROM change_log WHERE entity_type = ? "
+                + "AND entity_id IS NULL AND id > ? AND id <= ? LIMIT 1", Long.class, ChangeLogService.CHARGER,
+                since, upTo).isEmpty();
+    }
+
+    /**
+     * Charger and user changes for the admin dashboard, disabled rows included.
+     */
+    public ChangeFeed adminChanges(Long since, Integer limit) {
+        return changes(Set.of(ChangeLogService.CHARGER, ChangeLogService.USER), since, limit, c -> true);
+    }
+
+    private ChangeFeed changes(Set<String> types, Long since, Integer limit, Predicate<Charger> visible) {
+        long upTo = changeLogTailer.getWatermark();
+        if (upTo < 0) {
+            return null;
+        }
+        ChangeFeed feed = new ChangeFeed();
+        if (since == null || since < 0 || !covers(since, upTo)) {
+            feed.setVersion(upTo);
+            feed.setResync(true);
+            return feed;
+        }
+        if (since >= upTo) {
+            // Nothing new, or a version from an instance that is further ahead
+            feed.setVersion(since);
+            return feed;
+        }
+
+        int size = limit != null ? Math.max(1, Math.min(limit, MAX_LIMIT)) : DEFAULT_LIMIT;
+        Map<String, Object> params = new HashMap<>();
+        params.put("types", types);
+        params.put("since", since);
+        params.put("upTo", upTo);
+        params.put("limit", size);
+        List<Map<String, Object>> entries = namedJdbcTemplate.queryForList("SELECT id, entity_type, entity_id "
+                + "FROM change_log WHERE entity_type IN (:types) AND id > :since AND id <= :upTo "
+                + "ORDER BY id LIMIT :limit", params);
+
+        Set<Long> chargerIds = new LinkedHashSet<>();
+        Set<Long> userIds = new LinkedHashSet<>();
+        for (Map<String, Object> entry : entries) {
+            Object entityId = entry.get("entity_id");
+            if (entityId == null) {
+                // Every row of the type changed
+                feed.setVersion(upTo);
+                feed.setResync(true);
+                return feed;
+            }
+            long id = ((Number) entityId).longValue();
+            if (ChangeLogService.CHARGER.equals(entry.get("entity_type"))) {
+                chargerIds.add(id);
+            } else {
+                userIds.add(id);
+            }
+        }
+        if (entries.size() == size) {
+            feed.setHasMore(true);
+            feed.setVersion(((Number) entries.get(entries.size() - 1).get("id")).longValue());
+        } else {
+            feed.setVersion(upTo);
+        }
+
+        // Current state rather than per-entry history: a row changed several
+        // times is sent once, as it is now
+        if (!chargerIds.isEmpty()) {
+            for (Charger charger : chargerRepository.findAllById(chargerIds)) {
+                if (visible.test(charger)) {
+                    feed.getChargers().add(charger);
+                    chargerIds.remove(charger.getId());
+                }
+            }
+            feed.getDeletedChargerIds().addAll(chargerIds);
+        }
+        if (!userIds.isEmpty()) {
+            for (User user : userRepository.findAllById(userIds)) {
+                feed.getUsers().add(user);
+                userIds.remove(user.getId());
+            }
+            feed.getDeletedUserIds().addAll(userIds);
+        }
+        return feed;
+    }
+
+    /**
+     * Whether every change log entry after {@code since} is still retained.
+     * Entries are pruned oldest first, so it is enough that the oldest one is
+     * right after {@code since}, or that nothing after it was written.
+     */
+    private boolean covers(long since, long upTo) {
+        if (since >= upTo) {
+            return true;
+        }
+        Long oldest = jdbcTemplate.queryForObject("SELECT MIN(id) FROM change_log", Long.class);
+        return oldest != null && oldest <= since + 1;
+    }
+
+    private static double haversineKm(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                        * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.sqrt(a));
+    }
+}
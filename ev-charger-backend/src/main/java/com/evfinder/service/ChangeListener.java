@@ -0,0 +1,13 @@
+package com.evfinder.service;
+
+import java.util.List;
+
+/**
+ * Implemented by beans that keep in-process state derived from chargers or
+ * users. {@link ChangeLogTailer} delivers every change, including those made by
+ * this node, in batches.
+ */
+public interface ChangeListener {
+
+    void onChanges(List<ChangeEvent> events);
+}
@@ -0,0 +1,128 @@
+package com.evfinder.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Appends to the change log. Calls join the caller's transaction, so a change
+ * and its log entry commit or roll back together.
+ *
+ * Charger upserts also stamp the charger row with the id of its latest entry
+ * ({@code change_version}), so area feeds can find recent changes with an
+ * index range instead of reading the log. Charger deletes record the last
+ * position of the charger for the same reason.
+ */
+@Service
+public class ChangeLogService {
+
+    public static final String CHARGER = "CHARGER";
+    public static final String USER = "USER";
+    public static final String AREA = "AREA";
+
+    public static final String UPSERT = "UPSERT";
+    public static final String DELETE = "DELETE";
+
+    private static final String INSERT_SQL = "INSERT INTO change_log "
+            + "(entity_type, entity_id, operation, origin_node, created_at) VALUES (?, ?, ?, ?, ?)";
+    private static final String DELETE_SQL = "INSERT INTO change_log "
+            + "(entity_type, entity_id, operation, origin_node, created_at, latitude, longitude) "
+            + "SELECT ?, id, ?, ?, ?, latitude, longitude FROM chargers WHERE id = ?";
+    // GREATEST keeps the stamp from going backwards when two transactions change the same charger
+    private static final String STAMP_SQL = "UPDATE chargers c SET c.change_version = GREATEST("
+            + "COALESCE(c.change_version, 0), (SELECT MAX(l.id) FROM change_log l "
+            + "WHERE l.entity_type = '" + CHARGER + "' AND l.entity_id = c.id)) WHERE c.id IN (:ids)";
+    private static final int BATCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final String nodeId;
+
+    public ChangeLogService(JdbcTemplate jdbcTemplate, @Value("${evfinder.node-id:}") String configuredNodeId) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        String hostname = System.getenv("HOSTNAME");
+        if (configuredNodeId != null && !configuredNodeId.isBlank()) {
+            this.nodeId = configuredNodeId;
+        } else if (hostname != null && !hostname.isBlank()) {
+            this.nodeId = hostname;
+        } else {
+            this.nodeId = UUID.randomUUID().toString();
+        }
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void record(String entityType, Long entityId, String operation) {
+        if (entityId != null && CHARGER.equals(entityType) && DELETE.equals(operation)) {
+            recordChargerDeletes(List.of(entityId));
+            return;
+        }
+        jdbcTemplate.update(INSERT_SQL, entityType, entityId, operation, nodeId, new Timestamp(System.currentTimeMillis()));
+        if (entityId != null && CHARGER.equals(entityType)) {
+            stamp(List.of(entityId));
+        }
+    }
+
+    public void recordAll(String entityType, Collection<Long> entityIds, String operation) {
+        if (entityIds.isEmpty()) {
+            return;
+        }
+        if (CHARGER.equals(entityType) && DELETE.equals(operation)) {
+            recordChargerDeletes(entityIds);
+            return;
+        }
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        List<Long> ids = new ArrayList<>(entityIds);
+        jdbcTemplate.batchUpdate(INSERT_SQL, ids, BATCH_SIZE, (ps, id) -> {
+            ps.setString(1, entityType);
+            if (id != null) {
+                ps.setLong(2, id);
+            } else {
+                ps.setNull(2, Types.BIGINT);
+            }
+            ps.setString(3, operation);
+            ps.setString(4, nodeId);
+            ps.setTimestamp(5, now);
+        });
+        if (CHARGER.equals(entityType)) {
+            stamp(ids);
+        }
+    }
+
+    /**
+     * Records deleted chargers with their last position. Must run before the
+     * rows are deleted, in the same transaction.
+     */
+    private void recordChargerDeletes(Collection<Long> chargerIds) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        List<Long> ids = new ArrayList<>(chargerIds);
+        jdbcTemplate.batchUpdate(DELETE_SQL, ids, BATCH_SIZE, (ps, id) -> {
+            ps.setString(1, CHARGER);
+            ps.setString(2, DELETE);
+            ps.setString(3, nodeId);
+            ps.setTimestamp(4, now);
+            ps.setLong(5, id);
+        });
+    }
+
+    private void stamp(List<Long> chargerIds) {
+        List<Long> ids = chargerIds.stream().filter(Objects::nonNull).toList();
+        for (int from = 0; from < ids.size(); from += BATCH_SIZE) {
+            namedJdbcTemplate.update(STAMP_SQL,
+                    Map.of("ids", ids.subList(from, Math.min(from + BATCH_SIZE, ids.size()))));
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.evfinder.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Polls the change log and hands new entries to every {@link ChangeListener}.
+ *
+ * Auto-increment ids are allocated when a transaction inserts, not when it
+ * commits, so a lower id can become visible after a higher one. Ids skipped
+ * over are remembered as gaps and re-checked on each poll until they show up
+ * or {@code gap-timeout-ms} passes (rolled back transactions leave permanent
+ * gaps). {@link #getWatermark()} is the highest id below every open gap,
+ * published once the listeners have been handed everything up to it, so
+ * readers never wait on a poll.
+ */
+@Component
+public class ChangeLogTailer {
+    private static final Logger logger = LoggerFactory.getLogger(ChangeLogTailer.class);
+
+    private static final int POLL_LIMIT = 1000;
+    private static final int MAX_GAPS = 10_000;
+    private static final int PRUNE_BATCH = 10_000;
+
+    @Value("${evfinder.changes.gap-timeout-ms:30000}")
+    private long gapTimeoutMs;
+
+    @Value("${evfinder.changes.retention-hours:24}")
+    private long retentionHours;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final List<ChangeListener> listeners;
+    private final ChangeLogService changeLogService;
+
+    // Serializes polls, listener dispatch included; readers never take it.
+    // cursor and gaps are only touched while holding it
+    private final Object pollLock = new Object();
+    private volatile long cursor = -1;
+    private volatile long lastPollAt;
+    private final TreeMap<Long, Long> gaps = new TreeMap<>(); // id -> first noticed (ms)
+    // Published at the end of each poll for lock-free readers
+    private volatile long watermark = -1;
+    private volatile int pendingGaps;
+
+    private static final RowMapper<ChangeEvent> EVENT_MAPPER = (rs, rowNum) -> new ChangeEvent(
+            rs.getLong("id"),
+            rs.getString("entity_type"),
+            (Long) rs.getObject("entity_id", Long.class),
+            rs.getString("operation"),
+            rs.getString("origin_node"));
+
+    public ChangeLogTailer(JdbcTemplate jdbcTemplate, List<ChangeListener> listeners,
+            ChangeLogService changeLogService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.listeners = listeners;
+        this.changeLogService = changeLogService;
+    }
+
+    /**
+     * Starts tailing from the current end of the log. Local state is built from
+     * the tables themselves at startup, so older entries are not replayed. If
+     * the database is not reachable yet, the next poll tries again. Runs
+     * before other startup listeners so their catch-up reads start from a
+     * position the tailer already covers.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void start() {
+        synchronized (pollLock) {
+            if (cursor >= 0) {
+                return;
+            }
+            try {
+                Long max = jdbcTemplate.queryForObject("SELECT MAX(id) FROM change_log", Long.class);
+                cursor = max != null ? max : 0;
+                watermark = cursor;
+                logger.info("Tailing change log from id {} as node {}", cursor, changeLogService.getNodeId());
+            } catch (Exception e) {
+                logger.warn("Could not read change log position: {}", e.getMessage());
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${evfinder.changes.poll-interval-ms:1000}")
+    public void poll() {
+        synchronized (pollLock) {
+            if (cursor < 0) {
+                start();
+                return;
+            }
+            pollOnce();
+        }
+    }
+
+    private void pollOnce() {
+        try {
+            List<ChangeEvent> events = new ArrayList<>(recheckGaps());
+            List<ChangeEvent> fresh;
+            do {
+                fresh = jdbcTemplate.query("SELECT id, entity_type, entity_id, operation, origin_node FROM change_log "
+                        + "WHERE id > ? ORDER BY id LIMIT ?", EVENT_MAPPER, cursor, POLL_LIMIT);
+                long now = System.currentTimeMillis();
+                for (ChangeEvent event : fresh) {
+                    for (long missing = cursor + 1; missing < event.id() && gaps.size() < MAX_GAPS; missing++) {
+                        gaps.put(missing, now);
+                    }
+                    cursor = event.id();
+                }
+                events.addAll(fresh);
+            } while (fresh.size() == POLL_LIMIT);
+
+            lastPollAt = System.currentTimeMillis();
+            if (!events.isEmpty()) {
+                events.sort(Comparator.comparingLong(ChangeEvent::id));
+                dispatch(events);
+            }
+            watermark = gaps.isEmpty() ? cursor : Math.min(cursor, gaps.firstKey() - 1);
+            pendingGaps = gaps.size();
+        } catch (Exception e) {
+            logger.error("Change log poll failed: {}", e.getMessage());
+        }
+    }
+
+    private List<ChangeEvent> recheckGaps() {
+        if (gaps.isEmpty()) {
+            return List.of();
+        }
+        long expiry = System.currentTimeMillis() - gapTimeoutMs;
+        gaps.values().removeIf(noticedAt -> noticedAt < expiry);
+        if (gaps.isEmpty()) {
+            return List.of();
+        }
+        List<ChangeEvent> found = namedJdbcTemplate.query(
+                "SELECT id, entity_type, entity_id, operation, origin_node FROM change_log WHERE id IN (:ids)",
+                Map.of("ids", new ArrayList<>(gaps.keySet())), EVENT_MAPPER);
+        for (ChangeEvent event : found) {
+            gaps.remove(event.id());
+        }
+        return found;
+    }
+
+    private void dispatch(List<ChangeEvent> events) {
+        for (ChangeListener listener : listeners) {
+            try {
+                listener.onChanges(events);
+            } catch (Exception e) {
+                logger.error("Change listener {} failed: {}", listener.getClass().getSimpleName(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Highest change log id such that every entry at or below it has been seen.
+     */
+    public long getWatermark() {
+        return watermark;
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("nodeId", changeLogService.getNodeId());
+        status.put("cursor", cursor);
+        status.put("watermark", watermark);
+        status.put("pendingGaps", pendingGaps);
+        status.put("lastPollAt", lastPollAt);
+        return status;
+    }
+
+    @Scheduled(fixedDelayString = "${evfinder.changes.prune-interval-ms:3600000}")
+    public void prune() {
+        if (cursor < 0) {
+            return;
+        }
+        Timestamp cutoff = new Timestamp(System.currentTimeMillis() - retentionHours * 3_600_000);
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update("DELETE FROM change_log WHERE created_at < ? LIMIT " + PRUNE_BATCH, cutoff);
+        } while (deleted == PRUNE_BATCH);
+    }
+}
@@ -0,0 +1,172 @@
+package com.evfinder.service;
+
+import com.evfinder.model.Charger;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes batches of new chargers with plain JDBC, skipping any whose exact
+ * coordinates already exist. Chargers are identified by coordinates, the same
+ * rule the API Ninjas sync uses, and the unique key on them settles races
+ * between concurrent writers. Inserted ids go to the change log and status
+ * history in the same transaction.
+ */
+@Service
+public class ChargerBatchWriter {
+
+    static final int JDBC_BATCH_SIZE = 1000;
+
+    private static final String INSERT_SQL = "INSERT INTO chargers "
+            + "(name, latitude, longitude, address, country, plug_type, status, price_per_kwh, enabled) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE id = id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ChangeLogService changeLogService;
+    private final StatusHistoryService statusHistoryService;
+
+    public ChargerBatchWriter(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            ChangeLogService changeLogService, StatusHistoryService statusHistoryService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.changeLogService = changeLogService;
+        this.statusHistoryService = statusHistoryService;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public record WriteResult(int inserted, int duplicates) {
+    }
+
+    /**
+     * Inserts the chargers that are new both within the batch and against the
+     * database, and sets the ids of those inserted. Runs in a single
+     * transaction.
+     *
+     * Coordinates another writer commits after this transaction's first read
+     * are skipped by the unique key. Under REPEATABLE READ those rows stay
+     * invisible here, so reading the coordinates back returns exactly the
+     * rows this call inserted.
+     */
+    public WriteResult insertNew(List<Charger> chargers) {
+        if (chargers.isEmpty()) {
+            return new WriteResult(0, 0);
+        }
+        return transactionTemplate.execute(status -> {
+            Set<String> existing = findExistingCoordinates(chargers);
+            Map<String, Charger> candidates = new LinkedHashMap<>();
+            for (Charger charger : chargers) {
+                String key = coordinateKey(charger.getLatitude(), charger.getLongitude());
+                if (!existing.contains(key)) {
+                    candidates.putIfAbsent(key, charger);
+                }
+            }
+            // Same key order in every writer, so overlapping batches wait on each other instead of deadlocking
+            List<Charger> toInsert = new ArrayList<>(candidates.values());
+            toInsert.sort(Comparator.comparingDouble(Charger::getLatitude).thenComparingDouble(Charger::getLongitude));
+            insertAll(toInsert);
+
+            List<Charger> inserted = new ArrayList<>(toInsert.size());
+            List<Long> ids = new ArrayList<>(toInsert.size());
+            if (!toInsert.isEmpty()) {
+                namedJdbcTemplate.query("SELECT id, latitude, longitude FROM chargers WHERE latitude IN (:lats)",
+                        Map.of("lats", latitudes(toInsert)),
+                        rs -> {
+                            Charger charger = candidates.get(coordinateKey(rs.getDouble(2), rs.getDouble(3)));
+                            if (charger != null && charger.getId() == null) {
+                                charger.setId(rs.getLong(1));
+                                inserted.add(charger);
+                                ids.add(charger.getId());
+                            }
+                        });
+            }
+            changeLogService.recordAll(ChangeLogService.CHARGER, ids, ChangeLogService.UPSERT);
+            statusHistoryService.recordAll(inserted);
+            return new WriteResult(inserted.size(), chargers.size() - inserted.size());
+        });
+    }
+
+    /**
+     * Returns coordinate keys of stored chargers matching any of the given
+     * chargers' coordinates, using the (latitude, longitude) unique key.
+     */
+    public Set<String> findExistingCoordinates(Collection<Charger> chargers) {
+        Set<String> keys = new HashSet<>();
+        if (chargers.isEmpty()) {
+            return keys;
+        }
+        namedJdbcTemplate.query("SELECT latitude, longitude FROM chargers WHERE latitude IN (:lats)",
+                Map.of("lats", latitudes(chargers)),
+                rs -> {
+                    keys.add(coordinateKey(rs.getDouble(1), rs.getDouble(2)));
+                });
+        return keys;
+    }
+
+    private static Set<Double> latitudes(Collection<Charger> chargers) {
+        Set<Double> latitudes = new HashSet<>();
+        for (Charger charger : chargers) {
+            latitudes.add(charger.getLatitude());
+        }
+        return latitudes;
+    }
+
+    /**
+     * Batch-inserts the chargers, skipping coordinates that already exist.
+     * Generated keys are not used: with skipped rows they no longer line up
+     * with the batch.
+     */
+    private void insertAll(List<Charger> chargers) {
+        if (chargers.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_SQL)) {
+                for (int from = 0; from < chargers.size(); from += JDBC_BATCH_SIZE) {
+                    for (Charger c : chargers.subList(from, Math.min(from + JDBC_BATCH_SIZE, chargers.size()))) {
+                        bind(ps, c);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+            }
+            return null;
+        });
+    }
+
+    private static void bind(PreparedStatement ps, Charger c) throws SQLException {
+        ps.setString(1, c.getName());
+        ps.setDouble(2, c.getLatitude());
+        ps.setDouble(3, c.getLongitude());
+        ps.setString(4, c.getAddress());
+        ps.setString(5, c.getCountry());
+        ps.setString(6, c.getPlugType());
+        ps.setString(7, c.getStatus());
+        if (c.getPricePerKwh() != null) {
+            ps.setDouble(8, c.getPricePerKwh());
+        } else {
+            ps.setNull(8, Types.DOUBLE);
+        }
+        ps.setBoolean(9, !Boolean.FALSE.equals(c.getEnabled()));
+    }
+
+    public static String coordinateKey(double latitude, double longitude) {
+        return latitude + "," + longitude;
+    }
+}
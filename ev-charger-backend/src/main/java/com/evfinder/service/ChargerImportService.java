@@ -0,0 +1,438 @@
+package com.evfinder.service;
+
+import com.evfinder.model.ActivityLog;
+import com.evfinder.model.Charger;
+import com.evfinder.repository.ActivityLogRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Streams CSV or NDJSON charger files into the database as a background job.
+ *
+ * The job thread reads the file in fixed-size line chunks and hands them to a
+ * parse pool. At most a few chunks are in flight at once, and they are written
+ * in file order through {@link ChargerBatchWriter}, so memory stays flat no
+ * matter how large the file is.
+ */
+@Service
+public class ChargerImportService {
+    private static final Logger logger = LoggerFactory.getLogger(ChargerImportService.class);
+
+    public enum Format {
+        CSV, NDJSON
+    }
+
+    static final int CHUNK_LINES = 5000;
+    private static final Set<String> VALID_STATUSES = Set.of("AVAILABLE", "OCCUPIED", "OFFLINE");
+
+    @Value("${evfinder.import.max-size:1GB}")
+    private DataSize maxImportSize;
+
+    private final JobRegistry jobRegistry;
+    private final ChargerBatchWriter batchWriter;
+    private final ActivityLogRepository activityLogRepository;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final int parallelism = Math.max(1, Runtime.getRuntime().availableProcessors());
+    private final ExecutorService parsePool;
+
+    public ChargerImportService(JobRegistry jobRegistry, ChargerBatchWriter batchWriter,
+            ActivityLogRepository activityLogRepository) {
+        this.jobRegistry = jobRegistry;
+        this.batchWriter = batchWriter;
+        this.activityLogRepository = activityLogRepository;
+        AtomicInteger counter = new AtomicInteger();
+        this.parsePool = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "import-parse-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Copies the upload to a private temp file (the multipart file is removed once
+     * the request completes) and starts the import job.
+     */
+    public BackgroundJob startImport(MultipartFile file, String format, String adminEmail) throws IOException {
+        Format resolved = resolveFormat(format, file.getOriginalFilename());
+        Path temp = Files.createTempFile("charger-import-", "." + resolved.name().toLowerCase(Locale.ROOT));
+        file.transferTo(temp);
+        return submit(temp, resolved, file.getOriginalFilename(), adminEmail);
+    }
+
+    /**
+     * Spools a raw CSV or NDJSON request body to a private temp file and starts
+     * the import job. Unlike multipart uploads, which stay within the global
+     * multipart limit, the body may be up to {@code evfinder.import.max-size}.
+     */
+    public BackgroundJob startImport(InputStream body, long contentLength, String contentType, String format,
+            String fileName, String adminEmail) throws IOException {
+        long limit = maxImportSize.toBytes();
+        if (contentLength > limit) {
+            throw new MaxUploadSizeExceededException(limit);
+        }
+        Format resolved = resolveFormat(format != null && !format.isBlank() ? format : formatOf(contentType), fileName);
+        Path temp = Files.createTempFile("charger-import-", "." + resolved.name().toLowerCase(Locale.ROOT));
+        long copied = 0;
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            byte[] buffer = new byte[1 << 16];
+            int n;
+            while ((n = body.read(buffer)) >= 0) {
+                copied += n;
+                if (copied > limit) {
+                    throw new MaxUploadSizeExceededException(limit);
+                }
+                out.write(buffer, 0, n);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        if (copied == 0) {
+            Files.deleteIfExists(temp);
+            throw new IllegalArgumentException("Invalid request: a non-empty body is required");
+        }
+        return submit(temp, resolved, fileName, adminEmail);
+    }
+
+    private BackgroundJob submit(Path temp, Format resolved, String originalName, String adminEmail) {
+        String fileName = originalName != null ? originalName : temp.getFileName().toString();
+        return jobRegistry.submit("CHARGER_IMPORT", adminEmail, job -> {
+            boolean completed = false;
+            try {
+                runImport(job, temp, resolved);
+                completed = true;
+            } finally {
+                logSummary(job, adminEmail, fileName, completed);
+                Files.deleteIfExists(temp);
+            }
+        });
+    }
+
+    private static String formatOf(String contentType) {
+        String lower = contentType != null ? contentType.toLowerCase(Locale.ROOT) : "";
+        if (lower.startsWith("text/csv")) {
+            return "csv";
+        }
+        if (lower.startsWith("application/x-ndjson")) {
+            return "ndjson";
+        }
+        return null;
+    }
+
+    private Format resolveFormat(String format, String fileName) {
+        if (format != null && !format.isBlank()) {
+            try {
+                return Format.valueOf(format.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unsupported format: " + format + " (expected csv or ndjson)");
+            }
+        }
+        String lower = fileName != null ? fileName.toLowerCase(Locale.ROOT) : "";
+        if (lower.endsWith(".csv")) {
+            return Format.CSV;
+        }
+        if (lower.endsWith(".ndjson") || lower.endsWith(".jsonl")) {
+            return Format.NDJSON;
+        }
+        throw new IllegalArgumentException("Cannot infer format from file name, pass format=csv or format=ndjson");
+    }
+
+    private void runImport(BackgroundJob job, Path path, Format format) throws Exception {
+        long size = Math.max(1, Files.size(path));
+        try (CountingInputStream counting = new CountingInputStream(Files.newInputStream(path));
+                BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(counting, StandardCharsets.UTF_8), 1 << 16)) {
+
+            Map<String, Integer> header = null;
+            long lineNumber = 0;
+            if (format == Format.CSV) {
+                String headerLine;
+                do {
+                    headerLine = reader.readLine();
+                    lineNumber++;
+                } while (headerLine != null && headerLine.isBlank());
+                if (headerLine == null) {
+                    throw new IllegalArgumentException("CSV file is empty");
+                }
+                header = parseHeader(headerLine);
+            }
+
+            ArrayDeque<Future<ParsedChunk>> inFlight = new ArrayDeque<>();
+            List<String> lines = new ArrayList<>(CHUNK_LINES);
+            long chunkStart = lineNumber + 1;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                lines.add(line);
+                if (lines.size() == CHUNK_LINES) {
+                    inFlight.add(submitChunk(lines, chunkStart, format, header));
+                    lines = new ArrayList<>(CHUNK_LINES);
+                    chunkStart = lineNumber + 1;
+                    if (inFlight.size() >= parallelism * 2) {
+                        writeChunk(job, inFlight.poll().get());
+                        job.setProgress((double) counting.getCount() / size);
+                    }
+                }
+            }
+            if (!lines.isEmpty()) {
+                inFlight.add(submitChunk(lines, chunkStart, format, header));
+            }
+            while (!inFlight.isEmpty()) {
+                writeChunk(job, inFlight.poll().get());
+            }
+        }
+
+        job.setMessage(String.format("Imported %d chargers (%d duplicates skipped, %d rows rejected)",
+                job.getSucceeded(), job.getSkipped(), job.getFailed()));
+    }
+
+    private Future<ParsedChunk> submitChunk(List<String> lines, long firstLine, Format format,
+            Map<String, Integer> header) {
+        return parsePool.submit(() -> parseChunk(lines, firstLine, format, header));
+    }
+
+    private void writeChunk(BackgroundJob job, ParsedChunk chunk) {
+        ChargerBatchWriter.WriteResult result = batchWriter.insertNew(chunk.chargers());
+        job.addProcessed(chunk.rows());
+        job.addFailed(chunk.errors().size());
+        chunk.errors().forEach(job::addError);
+        job.addSucceeded(result.inserted());
+        job.addSkipped(result.duplicates());
+    }
+
+    private record ParsedChunk(List<Charger> chargers, int rows, List<String> errors) {
+    }
+
+    private ParsedChunk parseChunk(List<String> lines, long firstLine, Format format, Map<String, Integer> header) {
+        List<Charger> chargers = new ArrayList<>(lines.size());
+        List<String> errors = new ArrayList<>();
+        int rows = 0;
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (line.isBlank()) {
+                continue;
+            }
+            rows++;
+            try {
+                Map<String, String> fields = format == Format.CSV ? csvFields(line, header) : jsonFields(line);
+                chargers.add(toCharger(fields));
+            } catch (Exception e) {
+                errors.add("Line " + (firstLine + i) + ": " + e.getMessage());
+            }
+        }
+        return new ParsedChunk(chargers, rows, errors);
+    }
+
+    private Charger toCharger(Map<String, String> fields) {
+        double lat = parseDouble(fields.get("latitude"), "latitude");
+        double lng = parseDouble(fields.get("longitude"), "longitude");
+        if (lat < -90 || lat > 90) {
+            throw new IllegalArgumentException("latitude out of range: " + lat);
+        }
+        if (lng < -180 || lng > 180) {
+            throw new IllegalArgumentException("longitude out of range: " + lng);
+        }
+
+        String status = valueOr(fields.get("status"), "AVAILABLE").toUpperCase(Locale.ROOT);
+        if (!VALID_STATUSES.contains(status)) {
+            throw new IllegalArgumentException("unknown status: " + status);
+        }
+
+        // Same defaults as the API Ninjas sync
+        double price = 15.0;
+        String priceText = fields.get("priceperkwh");
+        if (priceText != null && !priceText.isBlank()) {
+            price = parseDouble(priceText, "price_per_kwh");
+            if (price < 0) {
+                throw new IllegalArgumentException("price_per_kwh must not be negative");
+            }
+        }
+        String enabled = fields.get("enabled");
+        return new Charger(null,
+                valueOr(fields.get("name"), "Unknown Charger"),
+                lat, lng,
+                valueOr(fields.get("address"), ""),
+                valueOr(fields.get("country"), "IN"),
+                valueOr(fields.get("plugtype"), "Unknown"),
+                status,
+                price,
+                enabled == null || enabled.isBlank() || Boolean.parseBoolean(enabled.trim()),
+                null);
+    }
+
+    private static double parseDouble(String value, String field) {
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException(field + " is required");
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(field + " is not a number: " + value);
+        }
+    }
+
+    private static String valueOr(String value, String fallback) {
+        return value == null || value.isBlank() ? fallback : value.trim();
+    }
+
+    /**
+     * Maps header names to canonical field keys: lower case, punctuation removed,
+     * with a few common aliases (lat, lng, lon, plug, price).
+     */
+    private static Map<String, Integer> parseHeader(String line) {
+        List<String> columns = splitCsv(line);
+        Map<String, Integer> header = new HashMap<>();
+        for (int i = 0; i < columns.size(); i++) {
+            header.put(canonicalField(columns.get(i)), i);
+        }
+        if (!header.containsKey("latitude") || !header.containsKey("longitude")) {
+            throw new IllegalArgumentException("CSV header must contain latitude and longitude columns");
+        }
+        return header;
+    }
+
+    private static String canonicalField(String name) {
+        String key = name.replace("\uFEFF", "").toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]", "");
+        return switch (key) {
+            case "lat" -> "latitude";
+            case "lng", "lon" -> "longitude";
+            case "plug" -> "plugtype";
+            case "price" -> "priceperkwh";
+            default -> key;
+        };
+    }
+
+    private static Map<String, String> csvFields(String line, Map<String, Integer> header) {
+        List<String> values = splitCsv(line);
+        Map<String, String> fields = new HashMap<>();
+        for (Map.Entry<String, Integer> column : header.entrySet()) {
+            if (column.getValue() < values.size()) {
+                fields.put(column.getKey(), values.get(column.getValue()));
+            }
+        }
+        return fields;
+    }
+
+    private Map<String, String> jsonFields(String line) throws IOException {
+        JsonNode node = objectMapper.readTree(line);
+        if (!node.isObject()) {
+            throw new IllegalArgumentException("expected a JSON object");
+        }
+        Map<String, String> fields = new HashMap<>();
+        node.fields().forEachRemaining(entry -> {
+            if (!entry.getValue().isNull()) {
+                fields.put(canonicalField(entry.getKey()), entry.getValue().asText());
+            }
+        });
+        return fields;
+    }
+
+    /**
+     * Splits one CSV record, honouring double-quoted fields and "" escapes. Quoted
+     * fields may not span lines.
+     */
+    static List<String> splitCsv(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char ch = line.charAt(i);
+            if (quoted) {
+                if (ch == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        current.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    current.append(ch);
+                }
+            } else if (ch == '"') {
+                quoted = true;
+            } else if (ch == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(ch);
+            }
+        }
+        values.add(current.toString());
+        return values;
+    }
+
+    private void logSummary(BackgroundJob job, String adminEmail, String fileName, boolean completed) {
+        try {
+            String outcome = completed ? "Imported" : "Failed import";
+            activityLogRepository.save(new ActivityLog(adminEmail, "BULK_IMPORT", "CHARGER", job.getId(),
+                    String.format("%s from %s: %d inserted, %d duplicates, %d rejected", outcome, fileName,
+                            job.getSucceeded(), job.getSkipped(), job.getFailed())));
+        } catch (Exception e) {
+            logger.error("Failed to log import activity: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        parsePool.shutdownNow();
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        private volatile long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+}
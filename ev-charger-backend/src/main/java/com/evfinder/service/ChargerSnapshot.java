@@ -0,0 +1,286 @@
+package com.evfinder.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only columnar snapshot of enabled chargers, sorted by latitude.
+ *
+ * Layout (little endian): magic, format, change log version, creation time,
+ * row count, status and plug type dictionaries, then the id, latitude and
+ * longitude columns (8 bytes per row each), the plug code column (2 bytes) and
+ * the status code column (1 byte). Code 0 means null. A snapshot read from
+ * disk is memory-mapped and its columns are read in place.
+ */
+final class ChargerSnapshot {
+
+    private static final int MAGIC = 0x45564353; // "EVCS"
+    private static final int FORMAT = 1;
+
+    record Row(long id, double latitude, double longitude, String status, String plugType) {
+    }
+
+    static final ChargerSnapshot EMPTY = fromBuffer(encode(0, 0, List.of()));
+
+    private final long version;
+    private final long createdAt;
+    private final int count;
+    private final String[] statusNames;
+    private final String[] plugNames;
+    private final LongBuffer ids;
+    private final DoubleBuffer latitudes;
+    private final DoubleBuffer longitudes;
+    private final ShortBuffer plugs;
+    private final ByteBuffer statuses;
+
+    private ChargerSnapshot(long version, long createdAt, int count, String[] statusNames, String[] plugNames,
+            LongBuffer ids, DoubleBuffer latitudes, DoubleBuffer longitudes, ShortBuffer plugs, ByteBuffer statuses) {
+        this.version = version;
+        this.createdAt = createdAt;
+        this.count = count;
+        this.statusNames = statusNames;
+        this.plugNames = plugNames;
+        this.ids = ids;
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.plugs = plugs;
+        this.statuses = statuses;
+    }
+
+    long version() {
+        return version;
+    }
+
+    long createdAt() {
+        return createdAt;
+    }
+
+    int count() {
+        return count;
+    }
+
+    long id(int i) {
+        return ids.get(i);
+    }
+
+    double latitude(int i) {
+        return latitudes.get(i);
+    }
+
+    double longitude(int i) {
+        return longitudes.get(i);
+    }
+
+    String status(int i) {
+        return statusNames[statuses.get(i) & 0xFF];
+    }
+
+    String plugType(int i) {
+        return plugNames[plugs.get(i)];
+    }
+
+    Row row(int i) {
+        return new Row(id(i), latitude(i), longitude(i), status(i), plugType(i));
+    }
+
+    /**
+     * Index of the first row with latitude >= {@code latitude}.
+     */
+    int lowerBound(double latitude) {
+        int lo = 0;
+        int hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (latitudes.get(mid) < latitude) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Maps an existing snapshot file. Returns null if it is not a snapshot in
+     * the current format or is truncated or corrupt.
+     */
+    static ChargerSnapshot map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.remaining() < 8 || buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT) {
+                return null;
+            }
+            return fromBuffer(buffer);
+        }
+    }
+
+    /**
+     * Writes a snapshot of {@code rows} to {@code path} (via a temporary file
+     * and an atomic rename) and maps it.
+     */
+    static ChargerSnapshot write(Path path, long version, List<Row> rows) throws IOException {
+        ByteBuffer encoded = encode(version, System.currentTimeMillis(), rows);
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (encoded.hasRemaining()) {
+                channel.write(encoded);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return map(path);
+    }
+
+    /**
+     * A heap-backed snapshot, for when no file can be written.
+     */
+    static ChargerSnapshot inMemory(long version, List<Row> rows) {
+        return fromBuffer(encode(version, System.currentTimeMillis(), rows));
+    }
+
+    private static ByteBuffer encode(long version, long createdAt, List<Row> rows) {
+        List<Row> sorted = new ArrayList<>(rows);
+        sorted.sort(Comparator.comparingDouble(Row::latitude));
+        Map<String, Integer> statusCodes = new LinkedHashMap<>();
+        Map<String, Integer> plugCodes = new LinkedHashMap<>();
+        for (Row row : sorted) {
+            if (row.status() != null) {
+                statusCodes.putIfAbsent(row.status(), statusCodes.size() + 1);
+            }
+            if (row.plugType() != null) {
+                plugCodes.putIfAbsent(row.plugType(), plugCodes.size() + 1);
+            }
+        }
+        if (statusCodes.size() > 255 || plugCodes.size() > Short.MAX_VALUE) {
+            throw new IllegalStateException("Too many distinct status or plug type values for a snapshot");
+        }
+
+        List<byte[]> dictionary = new ArrayList<>();
+        statusCodes.keySet().forEach(s -> dictionary.add(s.getBytes(StandardCharsets.UTF_8)));
+        plugCodes.keySet().forEach(s -> dictionary.add(s.getBytes(StandardCharsets.UTF_8)));
+        int headerSize = 4 + 4 + 8 + 8 + 4 + 4 + 4;
+        for (byte[] entry : dictionary) {
+            headerSize += 4 + entry.length;
+        }
+        int columnsStart = align8(headerSize);
+        int n = sorted.size();
+        ByteBuffer buffer = ByteBuffer.allocate(columnsStart + n * (8 + 8 + 8 + 2 + 1)).order(ByteOrder.LITTLE_ENDIAN);
+
+        buffer.putInt(MAGIC).putInt(FORMAT).putLong(version).putLong(createdAt).putInt(n)
+                .putInt(statusCodes.size()).putInt(plugCodes.size());
+        for (byte[] entry : dictionary) {
+            buffer.putInt(entry.length).put(entry);
+        }
+        buffer.position(columnsStart);
+        for (Row row : sorted) {
+            buffer.putLong(row.id());
+        }
+        for (Row row : sorted) {
+            buffer.putDouble(row.latitude());
+        }
+        for (Row row : sorted) {
+            buffer.putDouble(row.longitude());
+        }
+        for (Row row : sorted) {
+            buffer.putShort((short) (row.plugType() != null ? plugCodes.get(row.plugType()) : 0));
+        }
+        for (Row row : sorted) {
+            buffer.put((byte) (row.status() != null ? statusCodes.get(row.status()) : 0));
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Reads the header and slices the columns. Returns null when a count or
+     * length does not fit the buffer or a code has no dictionary entry.
+     */
+    private static ChargerSnapshot fromBuffer(ByteBuffer buffer) {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        int limit = buffer.limit();
+        int position = 8;
+        if (limit < position + 28) {
+            return null;
+        }
+        long version = buffer.getLong(position);
+        long createdAt = buffer.getLong(position + 8);
+        int n = buffer.getInt(position + 16);
+        int statusCount = buffer.getInt(position + 20);
+        int plugCount = buffer.getInt(position + 24);
+        position += 28;
+        if (n < 0 || statusCount < 0 || statusCount > 255 || plugCount < 0 || plugCount > Short.MAX_VALUE) {
+            return null;
+        }
+
+        String[] statusNames = new String[statusCount + 1];
+        String[] plugNames = new String[plugCount + 1];
+        for (int i = 1; i <= statusCount + plugCount; i++) {
+            if (limit - position < 4) {
+                return null;
+            }
+            int length = buffer.getInt(position);
+            if (length < 0 || length > limit - position - 4) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            buffer.get(position + 4, bytes);
+            position += 4 + length;
+            String value = new String(bytes, StandardCharsets.UTF_8);
+            if (i <= statusCount) {
+                statusNames[i] = value;
+            } else {
+                plugNames[i - statusCount] = value;
+            }
+        }
+
+        int offset = align8(position);
+        if (offset + (long) n * (8 + 8 + 8 + 2 + 1) > limit) {
+            return null;
+        }
+        LongBuffer ids = column(buffer, offset, n * 8).asLongBuffer();
+        offset += n * 8;
+        DoubleBuffer latitudes = column(buffer, offset, n * 8).asDoubleBuffer();
+        offset += n * 8;
+        DoubleBuffer longitudes = column(buffer, offset, n * 8).asDoubleBuffer();
+        offset += n * 8;
+        ShortBuffer plugs = column(buffer, offset, n * 2).asShortBuffer();
+        offset += n * 2;
+        ByteBuffer statuses = column(buffer, offset, n);
+        for (int i = 0; i < n; i++) {
+            if ((statuses.get(i) & 0xFF) > statusCount || plugs.get(i) < 0 || plugs.get(i) > plugCount) {
+                return null;
+            }
+        }
+        return new ChargerSnapshot(version, createdAt, n, statusNames, plugNames, ids, latitudes, longitudes, plugs,
+                statuses);
+    }
+
+    private static ByteBuffer column(ByteBuffer buffer, int offset, int length) {
+        return buffer.slice(offset, length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static int align8(int value) {
+        return (value + 7) & ~7;
+    }
+}
@@ -0,0 +1,432 @@
+package com.evfinder.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.evfinder.model.Charger;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process copy of the marker columns of enabled chargers (id, coordinates,
+ * status, plug type), backed by a memory-mapped {@link ChargerSnapshot} file.
+ *
+ * On startup the last snapshot file is mapped and only the chargers changed
+ * since its change log version are read from the database, so a restart does
+ * not scan the chargers table. Changes delivered by the change log tailer are
+ * kept as overrides on top of the snapshot and folded into a new file
+ * periodically. A full rebuild from the database only happens when there is
+ * no usable file or the change log no longer covers the gap since it, or
+ * when a change touches every charger; the latter is only requested by the
+ * tailer and run by a scheduled check, with reads going to the database until
+ * it is done.
+ */
+@Service
+public class ChargerSnapshotStore implements ChangeListener {
+    private static final Logger logger = LoggerFactory.getLogger(ChargerSnapshotStore.class);
+
+    public static final Set<String> FIELDS = Set.of("id", "latitude", "longitude", "status", "plugType");
+
+    private static final double EARTH_RADIUS_KM = 6371;
+    private static final double KM_PER_DEGREE = 111.32;
+    private static final int LOOKUP_CHUNK = 1000;
+
+    private static final String CHARGER_SQL = "SELECT id, latitude, longitude, status, plug_type FROM chargers "
+            + "WHERE enabled = TRUE AND latitude IS NOT NULL AND longitude IS NOT NULL";
+
+    private static final RowMapper<ChargerSnapshot.Row> ROW_MAPPER = (rs, rowNum) -> new ChargerSnapshot.Row(
+            rs.getLong(1), rs.getDouble(2), rs.getDouble(3), rs.getString(4), rs.getString(5));
+
+    @Value("${evfinder.snapshot.enabled:true}")
+    private boolean enabled;
+
+    @Value("${evfinder.snapshot.path:data/charger-snapshot.bin}")
+    private String path;
+
+    @Value("${evfinder.changes.retention-hours:24}")
+    private long retentionHours;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    // The tailer is itself built from every ChangeListener, this one included
+    private final ObjectProvider<ChangeLogTailer> changeLogTailer;
+
+    private final Object writeLock = new Object();
+    private volatile ChargerSnapshot snapshot = ChargerSnapshot.EMPTY;
+    private volatile boolean ready;
+    private final AtomicBoolean loading = new AtomicBoolean();
+    private volatile long lastWriteAt;
+    // Full rebuilds requested and not yet covered by a finished one
+    private final AtomicLong rebuildRequests = new AtomicLong();
+    // Charger id -> current row, or empty when removed or disabled since the snapshot
+    private final Map<Long, Optional<ChargerSnapshot.Row>> overrides = new ConcurrentHashMap<>();
+
+    public ChargerSnapshotStore(JdbcTemplate jdbcTemplate, ObjectProvider<ChangeLogTailer> changeLogTailer) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.changeLogTailer = changeLogTailer;
+    }
+
+    public boolean isReady() {
+        return enabled && ready && rebuildRequests.get() == 0;
+    }
+
+    /**
+     * Same contract as {@code ChargerRepositoryCustom.findEnabledProjected},
+     * served from memory. Returns null when the store is not loaded yet or a
+     * requested field is not held in the snapshot, in which case the caller
+     * should query the database.
+     */
+    public List<Map<String, Object>> findEnabledProjected(List<String> fields, String status, String plugType,
+            Double lat, Double lng, double radiusKm) {
+        if (!isReady() || fields == null || fields.isEmpty() || !FIELDS.containsAll(fields)) {
+            return null;
+        }
+        ChargerSnapshot current = snapshot;
+        Map<Long, Optional<ChargerSnapshot.Row>> changed = new HashMap<>(overrides);
+        List<ChargerSnapshot.Row> matches = new ArrayList<>();
+
+        if (lat != null && lng != null) {
+            double latDelta = radiusKm / KM_PER_DEGREE;
+            double lngDelta = latDelta / Math.max(Math.cos(Math.toRadians(lat)), 0.01);
+            for (int i = current.lowerBound(lat - latDelta); i < current.count(); i++) {
+                if (current.latitude(i) > lat + latDelta) {
+                    break;
+                }
+                if (Math.abs(current.longitude(i) - lng) <= lngDelta && !changed.containsKey(current.id(i))) {
+                    ChargerSnapshot.Row row = current.row(i);
+                    if (matches(row, status, plugType)) {
+                        matches.add(row);
+                    }
+                }
+            }
+            for (Optional<ChargerSnapshot.Row> row : changed.values()) {
+                row.filter(r -> matches(r, status, plugType)).ifPresent(matches::add);
+            }
+            List<Object[]> withDistance = new ArrayList<>(matches.size());
+            for (ChargerSnapshot.Row row : matches) {
+                double distance = haversineKm(lat, lng, row.latitude(), row.longitude());
+                if (distance <= radiusKm) {
+                    withDistance.add(new Object[] { distance, row });
+                }
+            }
+            withDistance.sort(Comparator.comparingDouble(entry -> (Double) entry[0]));
+            List<Map<String, Object>> rows = new ArrayList<>(withDistance.size());
+            for (Object[] entry : withDistance) {
+                rows.add(toMap((ChargerSnapshot.Row) entry[1], fields));
+            }
+            return rows;
+        }
+
+        for (int i = 0; i < current.count(); i++) {
+            if (!changed.containsKey(current.id(i))) {
+                ChargerSnapshot.Row row = current.row(i);
+                if (matches(row, status, plugType)) {
+                    matches.add(row);
+                }
+            }
+        }
+        for (Optional<ChargerSnapshot.Row> row : changed.values()) {
+            row.filter(r -> matches(r, status, plugType)).ifPresent(matches::add);
+        }
+        matches.sort(Comparator.comparingLong(ChargerSnapshot.Row::id));
+        List<Map<String, Object>> rows = new ArrayList<>(matches.size());
+        for (ChargerSnapshot.Row row : matches) {
+            rows.add(toMap(row, fields));
+        }
+        return rows;
+    }
+
+    private static boolean matches(ChargerSnapshot.Row row, String status, String plugType) {
+        return (status == null || status.equals(row.status())) && (plugType == null || plugType.equals(row.plugType()));
+    }
+
+    private static Map<String, Object> toMap(ChargerSnapshot.Row row, List<String> fields) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (String field : fields) {
+            switch (field) {
+                case "id" -> map.put(field, row.id());
+                case "latitude" -> map.put(field, row.latitude());
+                case "longitude" -> map.put(field, row.longitude());
+                case "status" -> map.put(field, row.status());
+                default -> map.put(field, row.plugType());
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Loads the store in the background once the change log tailer has taken
+     * its starting position, so every change after the snapshot is either
+     * caught up here or delivered by the tailer.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled || !loading.compareAndSet(false, true)) {
+            return;
+        }
+        Thread loader = new Thread(() -> {
+            try {
+                if (changeLogTailer.getObject().getWatermark() < 0) {
+                    logger.warn("Change log tailer not started, deferring charger snapshot load");
+                    return;
+                }
+                long started = System.currentTimeMillis();
+                if (!warmStart()) {
+                    rebuild();
+                }
+                ready = true;
+                logger.info("Charger snapshot ready in {} ms: {} chargers at version {}, {} overrides",
+                        System.currentTimeMillis() - started, snapshot.count(), snapshot.version(), overrides.size());
+            } catch (Exception e) {
+                logger.warn("Could not load charger snapshot, retrying on the next compaction: {}", e.getMessage());
+            } finally {
+                loading.set(false);
+            }
+        }, "charger-snapshot-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * Maps the snapshot file and reads the chargers changed since its version.
+     * Returns false when a full rebuild is needed instead.
+     */
+    private boolean warmStart() throws Exception {
+        Path file = Path.of(path);
+        if (!Files.isRegularFile(file)) {
+            return false;
+        }
+        ChargerSnapshot mapped;
+        try {
+            mapped = ChargerSnapshot.map(file);
+        } catch (IOException e) {
+            logger.warn("Could not map {}, rebuilding: {}", file, e.getMessage());
+            return false;
+        }
+        if (mapped == null) {
+            logger.warn("Ignoring {}: not a valid charger snapshot in the current format", file);
+            return false;
+        }
+        long version = mapped.version();
+        Long oldest = jdbcTemplate.queryForObject("SELECT MIN(id) FROM change_log", Long.class);
+        boolean covered = oldest != null
+                ? oldest <= version + 1
+                : System.currentTimeMillis() - mapped.createdAt() < retentionHours * 3_600_000;
+        if (!covered) {
+            logger.info("Change log no longer covers snapshot version {}, rebuilding", version);
+            return false;
+        }
+        List<Long> changedIds = new ArrayList<>();
+        boolean everything = false;
+        for (Long id : jdbcTemplate.queryForList("SELECT DISTINCT entity_id FROM change_log "
+                + "WHERE entity_type = ? AND id > ?", Long.class, ChangeLogService.CHARGER, version)) {
+            if (id == null) {
+                everything = true;
+                break;
+            }
+            changedIds.add(id);
+        }
+        if (everything) {
+            return false;
+        }
+        snapshot = mapped;
+        reload(changedIds);
+        return true;
+    }
+
+    @Override
+    public void onChanges(List<ChangeEvent> events) {
+        if (!enabled) {
+            return;
+        }
+        Set<Long> ids = new HashSet<>();
+        for (ChangeEvent event : events) {
+            if (!ChangeLogService.CHARGER.equals(event.entityType())) {
+                continue;
+            }
+            if (event.entityId() == null) {
+                if (ready) {
+                    rebuildRequests.incrementAndGet();
+                }
+                return;
+            }
+            ids.add(event.entityId());
+        }
+        reload(ids);
+    }
+
+    /**
+     * Applies chargers this node has just committed, so a request that synced
+     * them sees them without waiting for the change log poll.
+     */
+    public synchronized void apply(Collection<Charger> chargers) {
+        if (!enabled) {
+            return;
+        }
+        for (Charger c : chargers) {
+            if (c.getId() == null) {
+                continue;
+            }
+            boolean visible = Boolean.TRUE.equals(c.getEnabled()) && c.getLatitude() != null
+                    && c.getLongitude() != null;
+            overrides.put(c.getId(), visible
+                    ? Optional.of(new ChargerSnapshot.Row(c.getId(), c.getLatitude(), c.getLongitude(), c.getStatus(),
+                            c.getPlugType()))
+                    : Optional.empty());
+        }
+    }
+
+    /**
+     * Re-reads the given chargers into the overrides; ids not found (deleted,
+     * disabled or without coordinates) are recorded as removed. Serialized so
+     * an older read never overwrites a newer one.
+     */
+    private synchronized void reload(Collection<Long> ids) {
+        List<Long> list = new ArrayList<>(ids);
+        for (int from = 0; from < list.size(); from += LOOKUP_CHUNK) {
+            List<Long> chunk = list.subList(from, Math.min(from + LOOKUP_CHUNK, list.size()));
+            Map<Long, Optional<ChargerSnapshot.Row>> found = new HashMap<>();
+            for (Long id : chunk) {
+                found.put(id, Optional.empty());
+            }
+            for (ChargerSnapshot.Row row : namedJdbcTemplate.query(CHARGER_SQL + " AND id IN (:ids)",
+                    Map.of("ids", chunk), ROW_MAPPER)) {
+                found.put(row.id(), Optional.of(row));
+            }
+            overrides.putAll(found);
+        }
+    }
+
+    /**
+     * Folds the overrides into a new snapshot file. The version is taken from
+     * the tailer before the overrides are copied, so every change at or below
+     * it is already in the copy; later ones may be too, which only means they
+     * are re-read on the next warm start.
+     */
+    @Scheduled(fixedDelayString = "${evfinder.snapshot.compact-interval-ms:900000}",
+            initialDelayString = "${evfinder.snapshot.compact-interval-ms:900000}")
+    public void compact() {
+        if (!enabled) {
+            return;
+        }
+        if (!ready) {
+            load();
+            return;
+        }
+        if (overrides.isEmpty()) {
+            return;
+        }
+        synchronized (writeLock) {
+            long version = changeLogTailer.getObject().getWatermark();
+            if (version < 0) {
+                return;
+            }
+            Map<Long, Optional<ChargerSnapshot.Row>> applied = new HashMap<>(overrides);
+            ChargerSnapshot current = snapshot;
+            List<ChargerSnapshot.Row> rows = new ArrayList<>(current.count() + applied.size());
+            for (int i = 0; i < current.count(); i++) {
+                if (!applied.containsKey(current.id(i))) {
+                    rows.add(current.row(i));
+                }
+            }
+            for (Optional<ChargerSnapshot.Row> row : applied.values()) {
+                row.ifPresent(rows::add);
+            }
+            install(version, rows, applied);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${evfinder.snapshot.rebuild-check-ms:5000}")
+    public void rebuildIfRequested() {
+        long requests = rebuildRequests.get();
+        if (!enabled || requests == 0) {
+            return;
+        }
+        try {
+            rebuild();
+            // Requests made during the rebuild are not covered by it and keep the store on the database
+            rebuildRequests.compareAndSet(requests, 0);
+        } catch (Exception e) {
+            logger.warn("Could not rebuild charger snapshot, retrying: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Replaces the snapshot with a full read of the chargers table.
+     */
+    public void rebuild() {
+        synchronized (writeLock) {
+            long version = Math.max(changeLogTailer.getObject().getWatermark(), 0);
+            Map<Long, Optional<ChargerSnapshot.Row>> applied = new HashMap<>(overrides);
+            List<ChargerSnapshot.Row> rows = jdbcTemplate.query(CHARGER_SQL, ROW_MAPPER);
+            install(version, rows, applied);
+        }
+    }
+
+    /**
+     * Writes and maps the new snapshot, then drops the overrides it contains
+     * (unless they changed again meanwhile). Falls back to a heap snapshot
+     * when the file cannot be written.
+     */
+    private void install(long version, List<ChargerSnapshot.Row> rows,
+            Map<Long, Optional<ChargerSnapshot.Row>> applied) {
+        ChargerSnapshot next;
+        try {
+            next = ChargerSnapshot.write(Path.of(path), version, rows);
+            lastWriteAt = System.currentTimeMillis();
+        } catch (Exception e) {
+            logger.warn("Could not write charger snapshot to {}: {}", path, e.getMessage());
+            next = ChargerSnapshot.inMemory(version, rows);
+        }
+        snapshot = next;
+        applied.forEach(overrides::remove);
+    }
+
+    public Map<String, Object> getStatus() {
+        ChargerSnapshot current = snapshot;
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", enabled);
+        status.put("ready", ready);
+        status.put("rebuildPending", rebuildRequests.get() > 0);
+        status.put("path", path);
+        status.put("version", current.version());
+        status.put("chargers", current.count());
+        status.put("overrides", overrides.size());
+        status.put("createdAt", current.createdAt());
+        status.put("lastWriteAt", lastWriteAt);
+        return status;
+    }
+
+    private static double haversineKm(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                        * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.sqrt(a));
+    }
+}
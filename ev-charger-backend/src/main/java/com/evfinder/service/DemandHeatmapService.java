@@ -0,0 +1,205 @@
+package com.evfinder.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tracks where drivers search, as decaying request counts per quantised
+ * lat/lng cell, and when each cell was last synced from API Ninjas.
+ *
+ * Counts are halved on every decay tick so the heatmap follows current demand,
+ * and cells that decay to zero are dropped. The number of tracked cells is
+ * capped; requests for new cells beyond the cap are ignored until decay frees
+ * room.
+ *
+ * A sync covers every cell whose centre lies in the synced area, and an area
+ * is fresh only when all of those cells are. Syncs are published to the change
+ * log as AREA entries keyed by cell, so a cell synced by one instance is
+ * treated as fresh by all of them.
+ */
+@Service
+public class DemandHeatmapService implements ChangeListener {
+    private static final Logger logger = LoggerFactory.getLogger(DemandHeatmapService.class);
+
+    private static final double KM_PER_DEGREE = 111.32;
+    private static final double EARTH_RADIUS_KM = 6371.0;
+
+    @Value("${evfinder.prewarm.cell-size-deg:0.1}")
+    private double cellSizeDeg;
+
+    @Value("${evfinder.prewarm.max-cells:20000}")
+    private int maxCells;
+
+    @Value("${evfinder.prewarm.fresh-minutes:15}")
+    private long freshMinutes;
+
+    private final Map<Long, AtomicInteger> demand = new ConcurrentHashMap<>();
+    private final Map<Long, Long> lastSyncedAt = new ConcurrentHashMap<>();
+    private final LongAdder recentRequests = new LongAdder();
+    private final ChangeLogService changeLogService;
+
+    public DemandHeatmapService(ChangeLogService changeLogService) {
+        this.changeLogService = changeLogService;
+    }
+
+    public record Cell(long key, double latitude, double longitude, int demand) {
+    }
+
+    public void recordRequest(double lat, double lng) {
+        recentRequests.increment();
+        long key = cellKey(lat, lng);
+        AtomicInteger counter = demand.get(key);
+        if (counter == null) {
+            if (demand.size() >= maxCells) {
+                return;
+            }
+            counter = demand.computeIfAbsent(key, k -> new AtomicInteger());
+        }
+        counter.incrementAndGet();
+    }
+
+    public boolean isFresh(long key) {
+        Long syncedAt = lastSyncedAt.get(key);
+        return syncedAt != null && System.currentTimeMillis() - syncedAt < freshMinutes * 60_000;
+    }
+
+    public boolean isFresh(Collection<Long> keys) {
+        for (long key : keys) {
+            if (!isFresh(key)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void markSynced(Collection<Long> keys) {
+        long now = System.currentTimeMillis();
+        keys.forEach(key -> lastSyncedAt.put(key, now));
+        try {
+            changeLogService.recordAll(ChangeLogService.AREA, keys, ChangeLogService.UPSERT);
+        } catch (Exception e) {
+            logger.warn("Failed to publish sync of {} cells: {}", keys.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Cells whose centre is within {@code radiusKm} of the point, or the cell
+     * containing the point when no centre is.
+     */
+    public Set<Long> cellsWithin(double lat, double lng, double radiusKm) {
+        double latDelta = radiusKm / KM_PER_DEGREE;
+        double lngDelta = radiusKm / (KM_PER_DEGREE * Math.max(Math.cos(Math.toRadians(lat)), 0.01));
+        Set<Long> keys = new LinkedHashSet<>();
+        for (int row = firstCell(lat - latDelta); row <= lastCell(lat + latDelta); row++) {
+            for (int col = firstCell(lng - lngDelta); col <= lastCell(lng + lngDelta); col++) {
+                double x = Math.toRadians((col + 0.5) * cellSizeDeg - lng) * Math.cos(Math.toRadians(lat));
+                double y = Math.toRadians((row + 0.5) * cellSizeDeg - lat);
+                if (Math.sqrt(x * x + y * y) * EARTH_RADIUS_KM <= radiusKm) {
+                    keys.add(key(row, col));
+                }
+            }
+        }
+        if (keys.isEmpty()) {
+            keys.add(cellKey(lat, lng));
+        }
+        return keys;
+    }
+
+    /**
+     * Cells whose centre lies in the box, or the cell containing its centre
+     * when no centre does.
+     */
+    public Set<Long> cellsInBox(double minLat, double minLng, double maxLat, double maxLng) {
+        Set<Long> keys = new LinkedHashSet<>();
+        for (int row = firstCell(minLat); row <= lastCell(maxLat); row++) {
+            for (int col = firstCell(minLng); col <= lastCell(maxLng); col++) {
+                keys.add(key(row, col));
+            }
+        }
+        if (keys.isEmpty()) {
+            keys.add(cellKey((minLat + maxLat) / 2, (minLng + maxLng) / 2));
+        }
+        return keys;
+    }
+
+    // First and last cell index whose centre is at or after / at or before the coordinate
+    private int firstCell(double coordinate) {
+        return (int) Math.ceil(coordinate / cellSizeDeg - 0.5);
+    }
+
+    private int lastCell(double coordinate) {
+        return (int) Math.floor(coordinate / cellSizeDeg - 0.5);
+    }
+
+    @Override
+    public void onChanges(List<ChangeEvent> events) {
+        long now = System.currentTimeMillis();
+        for (ChangeEvent event : events) {
+            if (ChangeLogService.AREA.equals(event.entityType()) && event.entityId() != null
+                    && !changeLogService.getNodeId().equals(event.originNode())) {
+                lastSyncedAt.put(event.entityId(), now);
+            }
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} of the most requested cells that are not fresh,
+     * hottest first.
+     */
+    public List<Cell> hottestStaleCells(int limit) {
+        List<Cell> cells = new ArrayList<>();
+        for (Map.Entry<Long, AtomicInteger> entry : demand.entrySet()) {
+            long key = entry.getKey();
+            int count = entry.getValue().get();
+            if (count > 0 && !isFresh(key)) {
+                cells.add(new Cell(key, centerLatitude(key), centerLongitude(key), count));
+            }
+        }
+        cells.sort((a, b) -> Integer.compare(b.demand(), a.demand()));
+        return cells.size() > limit ? new ArrayList<>(cells.subList(0, limit)) : cells;
+    }
+
+    /**
+     * Returns the number of requests recorded since the previous call.
+     */
+    public long drainRecentRequests() {
+        return recentRequests.sumThenReset();
+    }
+
+    @Scheduled(fixedDelayString = "${evfinder.prewarm.decay-interval-ms:600000}")
+    public void decay() {
+        demand.values().forEach(counter -> counter.updateAndGet(v -> v >> 1));
+        demand.values().removeIf(counter -> counter.get() == 0);
+        long cutoff = System.currentTimeMillis() - freshMinutes * 60_000;
+        lastSyncedAt.values().removeIf(syncedAt -> syncedAt < cutoff);
+    }
+
+    public long cellKey(double lat, double lng) {
+        return key((int) Math.floor(lat / cellSizeDeg), (int) Math.floor(lng / cellSizeDeg));
+    }
+
+    private static long key(int row, int col) {
+        return ((long) row << 32) | (col & 0xffffffffL);
+    }
+
+    private double centerLatitude(long key) {
+        return ((int) (key >> 32) + 0.5) * cellSizeDeg;
+    }
+
+    private double centerLongitude(long key) {
+        return ((int) key + 0.5) * cellSizeDeg;
+    }
+}
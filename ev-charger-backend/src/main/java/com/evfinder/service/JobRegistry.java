@@ -0,0 +1,84 @@
+package com.evfinder.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Runs admin background jobs on a small dedicated pool and keeps their progress
+ * around for an hour after they finish so the dashboard can poll it.
+ */
+@Component
+public class JobRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(JobRegistry.class);
+
+    private static final int WORKER_THREADS = 2;
+    private static final long RETAIN_FINISHED_MINUTES = 60;
+
+    @FunctionalInterface
+    public interface JobTask {
+        void run(BackgroundJob job) throws Exception;
+    }
+
+    private final Map<String, BackgroundJob> jobs = new ConcurrentHashMap<>();
+    private final ExecutorService executor;
+
+    public JobRegistry() {
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(WORKER_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "admin-job-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public BackgroundJob submit(String type, String startedBy, JobTask task) {
+        evictFinished();
+        BackgroundJob job = new BackgroundJob(type, startedBy);
+        jobs.put(job.getId(), job);
+        executor.submit(() -> {
+            job.setStatus(BackgroundJob.Status.RUNNING);
+            try {
+                task.run(job);
+                job.setStatus(BackgroundJob.Status.COMPLETED);
+            } catch (Exception e) {
+                logger.error("Job {} ({}) failed", job.getId(), type, e);
+                job.setMessage("Failed: " + e.getMessage());
+                job.setStatus(BackgroundJob.Status.FAILED);
+            }
+        });
+        return job;
+    }
+
+    public Optional<BackgroundJob> find(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    public List<BackgroundJob> list() {
+        return jobs.values().stream()
+                .sorted(Comparator.comparing(BackgroundJob::getCreatedAt).reversed())
+                .collect(Collectors.toList());
+    }
+
+    private void evictFinished() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(RETAIN_FINISHED_MINUTES);
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt().isBefore(cutoff));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
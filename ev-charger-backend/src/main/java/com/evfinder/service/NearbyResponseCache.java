@@ -0,0 +1,375 @@
+package com.evfinder.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Candidate chargers for nearby-charger searches, cached per quantised cell
+ * and field set.
+ *
+ * Requests are snapped to a grid of {@code quantum-deg} cells. A cell entry
+ * holds every enabled charger within the search radius plus the cell's half
+ * diagonal of the cell centre, so it contains the full result for any point in
+ * the cell; each response is filtered and sorted from the caller's exact
+ * position. Entries are evicted least recently used once they hold more than
+ * {@code max-rows} chargers in total.
+ *
+ * Invalidation is driven by the change log and indexed: a charger change
+ * evicts the entries that contain the charger and the entries of the cells
+ * around its current position, so moves, deletes and newly enabled chargers
+ * are all caught without walking the whole cache. A load that overlaps a
+ * change to one of its chargers or its cells is returned but not cached.
+ */
+@Service
+public class NearbyResponseCache implements ChangeListener {
+    private static final Logger logger = LoggerFactory.getLogger(NearbyResponseCache.class);
+
+    private static final double EARTH_RADIUS_KM = 6371.0;
+    private static final double KM_PER_DEGREE = 111.32;
+    private static final int LOOKUP_CHUNK = 1000;
+
+    public record Key(int row, int col, String fields) {
+    }
+
+    /**
+     * A charger in a cell entry: its position and the value to serialise.
+     */
+    public record Candidate(long id, double latitude, double longitude, Object value) {
+    }
+
+    /**
+     * An in-flight load of one entry, from {@link #begin} to {@link #put}.
+     */
+    public static final class Load {
+        private final Key key;
+        private final Set<Long> changedIds = new HashSet<>(); // guarded by the cache
+        private boolean invalidated; // guarded by the cache
+
+        private Load(Key key) {
+            this.key = key;
+        }
+    }
+
+    private record Entry(List<Candidate> candidates) {
+    }
+
+    @Value("${evfinder.response-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${evfinder.response-cache.quantum-deg:0.01}")
+    private double quantumDeg;
+
+    @Value("${evfinder.response-cache.max-rows:500000}")
+    private long maxRows;
+
+    private final ObjectMapper objectMapper;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    // All guarded by this. Entries are access-ordered for LRU eviction; the
+    // indexes map a charger and a cell to the entries that must go when it changes.
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<Long, Set<Key>> keysByCharger = new HashMap<>();
+    private final Map<Long, Set<Key>> keysByCell = new HashMap<>();
+    private final Set<Load> loads = new HashSet<>();
+    private long totalRows;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public NearbyResponseCache(ObjectMapper objectMapper, JdbcTemplate jdbcTemplate) {
+        this.objectMapper = objectMapper;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Key key(double lat, double lng, List<String> fields) {
+        return new Key((int) Math.round(lat / quantumDeg), (int) Math.round(lng / quantumDeg),
+                fields != null ? String.join(",", fields) : "");
+    }
+
+    public double latitude(Key key) {
+        return key.row() * quantumDeg;
+    }
+
+    public double longitude(Key key) {
+        return key.col() * quantumDeg;
+    }
+
+    /**
+     * Radius to load around a cell centre so the entry covers a search of
+     * {@code radiusKm} from anywhere in the cell.
+     */
+    public double loadRadiusKm(double radiusKm) {
+        return radiusKm + quantumDeg * KM_PER_DEGREE * Math.sqrt(2) / 2;
+    }
+
+    /**
+     * Values within {@code radiusKm} of the point, nearest first, or null on a
+     * miss.
+     */
+    public List<Object> get(Key key, double lat, double lng, double radiusKm) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return nearest(entry.candidates(), lat, lng, radiusKm);
+    }
+
+    /**
+     * Registers a load of {@code key}; call before running the query.
+     */
+    public synchronized Load begin(Key key) {
+        Load load = new Load(key);
+        loads.add(load);
+        return load;
+    }
+
+    /**
+     * Caches the loaded candidates unless a change overlapped the load, and
+     * returns the values within {@code radiusKm} of the point, nearest first.
+     */
+    public List<Object> put(Load load, List<Candidate> candidates, double lat, double lng, double radiusKm) {
+        synchronized (this) {
+            loads.remove(load);
+            if (!load.invalidated && candidates.size() <= maxRows / 16
+                    && candidates.stream().noneMatch(c -> load.changedIds.contains(c.id()))) {
+                remove(load.key);
+                entries.put(load.key, new Entry(candidates));
+                totalRows += candidates.size();
+                for (Candidate candidate : candidates) {
+                    keysByCharger.computeIfAbsent(candidate.id(), id -> new HashSet<>()).add(load.key);
+                }
+                keysByCell.computeIfAbsent(cell(load.key.row(), load.key.col()), c -> new HashSet<>()).add(load.key);
+                Iterator<Key> eldest = entries.keySet().iterator();
+                while (totalRows > maxRows && eldest.hasNext()) {
+                    Key key = eldest.next();
+                    if (!key.equals(load.key)) {
+                        remove(key);
+                        eldest = entries.keySet().iterator();
+                    }
+                }
+            }
+        }
+        return nearest(candidates, lat, lng, radiusKm);
+    }
+
+    private static List<Object> nearest(List<Candidate> candidates, double lat, double lng, double radiusKm) {
+        double latDelta = radiusKm / KM_PER_DEGREE;
+        List<Object[]> withDistance = new ArrayList<>();
+        for (Candidate candidate : candidates) {
+            if (Math.abs(candidate.latitude() - lat) <= latDelta) {
+                double distance = haversineKm(lat, lng, candidate.latitude(), candidate.longitude());
+                if (distance <= radiusKm) {
+                    withDistance.add(new Object[] { distance, candidate.value() });
+                }
+            }
+        }
+        withDistance.sort(Comparator.comparingDouble(entry -> (Double) entry[0]));
+        List<Object> values = new ArrayList<>(withDistance.size());
+        for (Object[] entry : withDistance) {
+            values.add(entry[1]);
+        }
+        return values;
+    }
+
+    /**
+     * JSON body of {@code value}, gzipped when requested.
+     */
+    public byte[] encode(Object value, boolean gzip) {
+        try {
+            if (!gzip) {
+                return objectMapper.writeValueAsBytes(value);
+            }
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            try (GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+                objectMapper.writeValue(out, value);
+            }
+            return buffer.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Called with the lock held
+    private void remove(Key key) {
+        Entry entry = entries.remove(key);
+        if (entry == null) {
+            return;
+        }
+        totalRows -= entry.candidates().size();
+        for (Candidate candidate : entry.candidates()) {
+            Set<Key> keys = keysByCharger.get(candidate.id());
+            if (keys != null && keys.remove(key) && keys.isEmpty()) {
+                keysByCharger.remove(candidate.id());
+            }
+        }
+        long cell = cell(key.row(), key.col());
+        Set<Key> keys = keysByCell.get(cell);
+        if (keys != null && keys.remove(key) && keys.isEmpty()) {
+            keysByCell.remove(cell);
+        }
+    }
+
+    private static long cell(int row, int col) {
+        return ((long) row << 32) | (col & 0xffffffffL);
+    }
+
+    @Override
+    public void onChanges(List<ChangeEvent> events) {
+        Set<Long> ids = new HashSet<>();
+        boolean all = false;
+        for (ChangeEvent event : events) {
+            if (ChangeLogService.CHARGER.equals(event.entityType())) {
+                if (event.entityId() == null) {
+                    all = true;
+                } else {
+                    ids.add(event.entityId());
+                }
+            }
+        }
+        if (all) {
+            clear();
+            return;
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        List<double[]> positions = currentPositions(ids);
+        int evicted = 0;
+        synchronized (this) {
+            for (Load load : loads) {
+                load.changedIds.addAll(ids);
+            }
+            Set<Key> stale = new HashSet<>();
+            for (Long id : ids) {
+                Set<Key> keys = keysByCharger.get(id);
+                if (keys != null) {
+                    stale.addAll(keys);
+                }
+            }
+            for (double[] position : positions) {
+                stale.addAll(keysCovering(position[0], position[1]));
+            }
+            for (Key key : stale) {
+                if (entries.containsKey(key)) {
+                    remove(key);
+                    evicted++;
+                }
+            }
+        }
+        if (evicted > 0) {
+            logger.debug("Evicted {} cached cells for {} changed chargers", evicted, ids.size());
+        }
+    }
+
+    /**
+     * Keys of the entries and in-flight loads whose load radius covers the
+     * position. Called with the lock held.
+     */
+    private Set<Key> keysCovering(double lat, double lng) {
+        double radius = loadRadiusKm(ApiNinjasService.DEFAULT_RADIUS_KM);
+        double latDelta = radius / KM_PER_DEGREE;
+        double lngDelta = latDelta / Math.max(Math.cos(Math.toRadians(Math.abs(lat) + latDelta)), 0.01);
+        int minRow = (int) Math.floor((lat - latDelta) / quantumDeg);
+        int maxRow = (int) Math.ceil((lat + latDelta) / quantumDeg);
+        int minCol = (int) Math.floor((lng - lngDelta) / quantumDeg);
+        int maxCol = (int) Math.ceil((lng + lngDelta) / quantumDeg);
+        Set<Key> keys = new HashSet<>();
+        for (Load load : loads) {
+            int row = load.key.row();
+            int col = load.key.col();
+            if (row >= minRow && row <= maxRow && col >= minCol && col <= maxCol) {
+                load.invalidated = true;
+            }
+        }
+        if ((long) (maxRow - minRow + 1) * (maxCol - minCol + 1) > keysByCell.size()) {
+            for (Map.Entry<Long, Set<Key>> entry : keysByCell.entrySet()) {
+                int row = (int) (entry.getKey() >> 32);
+                int col = (int) (long) entry.getKey();
+                if (row >= minRow && row <= maxRow && col >= minCol && col <= maxCol) {
+                    keys.addAll(entry.getValue());
+                }
+            }
+            return keys;
+        }
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int col = minCol; col <= maxCol; col++) {
+                Set<Key> cellKeys = keysByCell.get(cell(row, col));
+                if (cellKeys != null) {
+                    keys.addAll(cellKeys);
+                }
+            }
+        }
+        return keys;
+    }
+
+    private List<double[]> currentPositions(Set<Long> ids) {
+        List<double[]> positions = new ArrayList<>(ids.size());
+        List<Long> all = new ArrayList<>(ids);
+        for (int from = 0; from < all.size(); from += LOOKUP_CHUNK) {
+            namedJdbcTemplate.query("SELECT latitude, longitude FROM chargers WHERE id IN (:ids) "
+                    + "AND latitude IS NOT NULL AND longitude IS NOT NULL",
+                    Map.of("ids", all.subList(from, Math.min(from + LOOKUP_CHUNK, all.size()))),
+                    rs -> {
+                        positions.add(new double[] { rs.getDouble(1), rs.getDouble(2) });
+                    });
+        }
+        return positions;
+    }
+
+    private static double haversineKm(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                        * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.sqrt(a));
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        keysByCharger.clear();
+        keysByCell.clear();
+        loads.forEach(load -> load.invalidated = true);
+        totalRows = 0;
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", entries.size());
+        stats.put("rows", totalRows);
+        stats.put("maxRows", maxRows);
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        return stats;
+    }
+}
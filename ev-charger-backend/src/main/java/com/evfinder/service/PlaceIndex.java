@@ -0,0 +1,167 @@
+package com.evfinder.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable prefix index over place documents: a sorted term dictionary with
+ * one posting list per term. A prefix maps to a contiguous range of terms,
+ * found by binary search, whose postings are unioned; multi-word queries
+ * intersect the per-word results. Documents are numbered by descending
+ * weight, so matches come out heaviest first.
+ */
+final class PlaceIndex {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    /**
+     * A searchable place. {@code chargerId} is set for charger documents and
+     * {@code weight} is the query-independent part of the ranking.
+     */
+    record Doc(String id, String type, String name, String detail, double latitude, double longitude,
+            double weight, Long chargerId, String[] tokens) {
+
+        boolean matchesAll(List<String> queryTokens) {
+            for (String query : queryTokens) {
+                boolean found = false;
+                for (String token : tokens) {
+                    if (token.startsWith(query)) {
+                        found = true;
+                        break;
+                    }
+                }
+                if (!found) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    static final PlaceIndex EMPTY = build(List.of());
+
+    private final String[] terms;
+    private final int[][] postings;
+    private final Doc[] docs;
+
+    private PlaceIndex(String[] terms, int[][] postings, Doc[] docs) {
+        this.terms = terms;
+        this.postings = postings;
+        this.docs = docs;
+    }
+
+    static PlaceIndex build(List<Doc> unordered) {
+        List<Doc> docs = new ArrayList<>(unordered);
+        docs.sort(Comparator.comparingDouble(Doc::weight).reversed());
+        Map<String, List<Integer>> byTerm = new TreeMap<>();
+        for (int i = 0; i < docs.size(); i++) {
+            for (String token : docs.get(i).tokens()) {
+                List<Integer> list = byTerm.computeIfAbsent(token, t -> new ArrayList<>(1));
+                if (list.isEmpty() || list.get(list.size() - 1) != i) {
+                    list.add(i);
+                }
+            }
+        }
+        String[] terms = new String[byTerm.size()];
+        int[][] postings = new int[byTerm.size()][];
+        int t = 0;
+        for (Map.Entry<String, List<Integer>> entry : byTerm.entrySet()) {
+            terms[t] = entry.getKey();
+            postings[t] = entry.getValue().stream().mapToInt(Integer::intValue).toArray();
+            t++;
+        }
+        return new PlaceIndex(terms, postings, docs.toArray(new Doc[0]));
+    }
+
+    int size() {
+        return docs.length;
+    }
+
+    int termCount() {
+        return terms.length;
+    }
+
+    /**
+     * Documents containing, for every query token, a token starting with it,
+     * at most {@code maxCandidates} of them in descending weight order.
+     */
+    List<Doc> search(List<String> queryTokens, int maxCandidates) {
+        if (queryTokens.isEmpty() || docs.length == 0) {
+            return List.of();
+        }
+        BitSet matches = null;
+        for (String query : queryTokens) {
+            BitSet forToken = prefixMatches(query);
+            if (matches == null) {
+                matches = forToken;
+            } else {
+                matches.and(forToken);
+            }
+            if (matches.isEmpty()) {
+                return List.of();
+            }
+        }
+        List<Doc> result = new ArrayList<>();
+        for (int i = matches.nextSetBit(0); i >= 0 && result.size() < maxCandidates; i = matches.nextSetBit(i + 1)) {
+            result.add(docs[i]);
+        }
+        return result;
+    }
+
+    private BitSet prefixMatches(String prefix) {
+        BitSet bits = new BitSet(docs.length);
+        int from = lowerBound(prefix);
+        for (int t = from; t < terms.length && terms[t].startsWith(prefix); t++) {
+            for (int doc : postings[t]) {
+                bits.set(doc);
+            }
+        }
+        return bits;
+    }
+
+    private int lowerBound(String key) {
+        int index = Arrays.binarySearch(terms, key);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * Lower-cased, accent-free words of {@code text}.
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return tokens;
+        }
+        String folded = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        for (String token : SEPARATORS.split(folded)) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    static String[] distinctTokens(String... texts) {
+        Map<String, Boolean> seen = new HashMap<>();
+        List<String> tokens = new ArrayList<>();
+        for (String text : texts) {
+            for (String token : tokenize(text)) {
+                if (seen.putIfAbsent(token, Boolean.TRUE) == null) {
+                    tokens.add(token);
+                }
+            }
+        }
+        return tokens.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,397 @@
+package com.evfinder.service;
+
+import com.evfinder.dto.PlaceSuggestion;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Place autocomplete served from memory.
+ *
+ * The index holds enabled chargers and localities derived from charger
+ * addresses (the trailing, number-free address parts, placed at the centroid
+ * of their chargers). It is rebuilt periodically; in between, charger changes
+ * from the change log are applied as overrides so synced chargers are
+ * searchable within a poll interval. Changes that need a full rebuild (too
+ * many overrides, or a change to every charger) only request one, which a
+ * scheduled check runs off the change log tailer thread. Queries with no local match at all are
+ * resolved through the configured geocoder once; the resolved places are
+ * cached, searchable by prefix straight away and folded into the index on the
+ * next rebuild.
+ */
+@Service
+public class PlaceSearchService implements ChangeListener {
+    private static final Logger logger = LoggerFactory.getLogger(PlaceSearchService.class);
+
+    static final int MAX_LIMIT = 20;
+    private static final int MAX_CANDIDATES = 5000;
+    private static final int LOOKUP_CHUNK = 1000;
+    private static final int ADDRESS_PARTS = 3;
+
+    private static final String CHARGER_SQL = "SELECT id, name, address, country, latitude, longitude "
+            + "FROM chargers WHERE enabled = TRUE AND latitude IS NOT NULL AND longitude IS NOT NULL";
+
+    @Value("${evfinder.places.fallback-url:https://photon.komoot.io/api/}")
+    private String fallbackUrl;
+
+    @Value("${evfinder.places.fallback-cache-size:2000}")
+    private int fallbackCacheSize;
+
+    @Value("${evfinder.places.fallback-ttl-minutes:1440}")
+    private long fallbackTtlMinutes;
+
+    @Value("${evfinder.places.max-overrides:5000}")
+    private int maxOverrides;
+
+    private record CachedPlaces(long expiresAt, List<PlaceIndex.Doc> places) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final RestTemplate restTemplate;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Object rebuildLock = new Object();
+    private volatile PlaceIndex index = PlaceIndex.EMPTY;
+    private volatile boolean built;
+    private volatile boolean rebuildRequested;
+    // Charger id -> current document, or empty when removed or disabled since the last build
+    private final Map<Long, Optional<PlaceIndex.Doc>> chargerOverrides = new ConcurrentHashMap<>();
+
+    // Guarded by this, access-ordered for LRU eviction
+    private final LinkedHashMap<String, CachedPlaces> fallbackCache = new LinkedHashMap<>(256, 0.75f, true);
+    // Geocoded places included in every rebuild, and those resolved since the last one
+    private final Map<String, PlaceIndex.Doc> resolvedPlaces = new ConcurrentHashMap<>();
+    private final Map<String, PlaceIndex.Doc> pendingPlaces = new ConcurrentHashMap<>();
+
+    public PlaceSearchService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(2000);
+        requestFactory.setReadTimeout(3000);
+        this.restTemplate = new RestTemplate(requestFactory);
+    }
+
+    public List<PlaceSuggestion> search(String query, Double lat, Double lng, int limit) {
+        List<String> tokens = PlaceIndex.tokenize(query);
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+        int size = Math.max(1, Math.min(limit, MAX_LIMIT));
+
+        List<PlaceIndex.Doc> candidates = new ArrayList<>();
+        for (PlaceIndex.Doc doc : index.search(tokens, MAX_CANDIDATES)) {
+            if (doc.chargerId() == null || !chargerOverrides.containsKey(doc.chargerId())) {
+                candidates.add(doc);
+            }
+        }
+        for (Optional<PlaceIndex.Doc> doc : chargerOverrides.values()) {
+            doc.filter(d -> d.matchesAll(tokens)).ifPresent(candidates::add);
+        }
+        for (PlaceIndex.Doc doc : pendingPlaces.values()) {
+            if (doc.matchesAll(tokens)) {
+                candidates.add(doc);
+            }
+        }
+
+        List<PlaceIndex.Doc> ranked = rank(candidates, tokens, lat, lng, size);
+        if (ranked.isEmpty() && query.trim().length() >= 3 && !fallbackUrl.isBlank()) {
+            ranked = rank(resolve(tokens, lat, lng), tokens, lat, lng, size);
+        }
+        return ranked.stream().map(PlaceSearchService::toSuggestion).toList();
+    }
+
+    private static List<PlaceIndex.Doc> rank(List<PlaceIndex.Doc> candidates, List<String> tokens, Double lat,
+            Double lng, int limit) {
+        Map<PlaceIndex.Doc, Double> scores = new HashMap<>();
+        PriorityQueue<PlaceIndex.Doc> top = new PriorityQueue<>(Comparator.comparingDouble(scores::get));
+        Set<String> seen = new HashSet<>();
+        for (PlaceIndex.Doc doc : candidates) {
+            if (!seen.add(displayKey(doc))) {
+                continue;
+            }
+            scores.put(doc, score(doc, tokens, lat, lng));
+            top.add(doc);
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+        List<PlaceIndex.Doc> result = new ArrayList<>(top);
+        result.sort(Comparator.comparingDouble((PlaceIndex.Doc d) -> scores.get(d)).reversed());
+        return result;
+    }
+
+    /**
+     * Query-independent weight, plus a point per query word matched as a whole
+     * word, a point when the name starts with the query, and up to two points
+     * for being close to the caller.
+     */
+    private static double score(PlaceIndex.Doc doc, List<String> tokens, Double lat, Double lng) {
+        double score = doc.weight();
+        for (String query : tokens) {
+            for (String token : doc.tokens()) {
+                if (token.equals(query)) {
+                    score += 1;
+                    break;
+                }
+            }
+        }
+        List<String> nameTokens = PlaceIndex.tokenize(doc.name());
+        if (!nameTokens.isEmpty() && nameTokens.get(0).startsWith(tokens.get(0))) {
+            score += 1;
+        }
+        if (lat != null && lng != null) {
+            score += 2 / (1 + distanceKm(lat, lng, doc.latitude(), doc.longitude()) / 50);
+        }
+        return score;
+    }
+
+    private static double distanceKm(double lat1, double lng1, double lat2, double lng2) {
+        double x = Math.toRadians(lng2 - lng1) * Math.cos(Math.toRadians((lat1 + lat2) / 2));
+        double y = Math.toRadians(lat2 - lat1);
+        return Math.sqrt(x * x + y * y) * 6371.0;
+    }
+
+    private static String displayKey(PlaceIndex.Doc doc) {
+        return (doc.name() + "|" + (doc.detail() != null ? doc.detail() : "")).toLowerCase(Locale.ROOT);
+    }
+
+    private static PlaceSuggestion toSuggestion(PlaceIndex.Doc doc) {
+        return new PlaceSuggestion(doc.id(), doc.type(), doc.name(), doc.detail(), doc.latitude(), doc.longitude());
+    }
+
+    // Geocoder fallback
+
+    private List<PlaceIndex.Doc> resolve(List<String> tokens, Double lat, Double lng) {
+        String key = String.join(" ", tokens)
+                + (lat != null && lng != null ? "@" + Math.round(lat) + "," + Math.round(lng) : "");
+        synchronized (this) {
+            CachedPlaces cached = fallbackCache.get(key);
+            if (cached != null && cached.expiresAt() > System.currentTimeMillis()) {
+                return cached.places();
+            }
+        }
+
+        List<PlaceIndex.Doc> places = new ArrayList<>();
+        try {
+            UriComponentsBuilder uri = UriComponentsBuilder.fromHttpUrl(fallbackUrl)
+                    .queryParam("q", String.join(" ", tokens))
+                    .queryParam("limit", 5);
+            if (lat != null && lng != null) {
+                uri.queryParam("lat", lat).queryParam("lon", lng);
+            }
+            String body = restTemplate.getForObject(uri.build().toUri(), String.class);
+            JsonNode features = body != null ? objectMapper.readTree(body).path("features") : null;
+            if (features != null && features.isArray()) {
+                for (JsonNode feature : features) {
+                    PlaceIndex.Doc place = toPlace(feature);
+                    if (place != null) {
+                        places.add(place);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Place lookup for '{}' failed: {}", key, e.getMessage());
+            return places;
+        }
+
+        synchronized (this) {
+            fallbackCache.put(key, new CachedPlaces(
+                    System.currentTimeMillis() + fallbackTtlMinutes * 60_000, places));
+            var eldest = fallbackCache.keySet().iterator();
+            while (fallbackCache.size() > fallbackCacheSize && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+        for (PlaceIndex.Doc place : places) {
+            if (resolvedPlaces.size() < fallbackCacheSize && resolvedPlaces.putIfAbsent(place.id(), place) == null) {
+                pendingPlaces.put(place.id(), place);
+            }
+        }
+        return places;
+    }
+
+    private static PlaceIndex.Doc toPlace(JsonNode feature) {
+        JsonNode properties = feature.path("properties");
+        JsonNode coordinates = feature.path("geometry").path("coordinates");
+        String name = properties.path("name").asText(null);
+        if (name == null || !coordinates.isArray() || coordinates.size() < 2) {
+            return null;
+        }
+        List<String> detailParts = new ArrayList<>();
+        for (String field : List.of("city", "state", "country")) {
+            String value = properties.path(field).asText(null);
+            if (value != null && !value.equals(name) && !detailParts.contains(value)) {
+                detailParts.add(value);
+            }
+        }
+        String detail = String.join(", ", detailParts);
+        String id = "place:" + properties.path("osm_type").asText("") + properties.path("osm_id").asText(name);
+        return new PlaceIndex.Doc(id, "PLACE", name, detail, coordinates.get(1).asDouble(),
+                coordinates.get(0).asDouble(), 2.5, null, PlaceIndex.distinctTokens(name, detail));
+    }
+
+    // Index maintenance
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            logger.warn("Could not build place index: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${evfinder.places.rebuild-interval-ms:600000}")
+    public void rebuildIfChanged() {
+        if (!built || !chargerOverrides.isEmpty() || !pendingPlaces.isEmpty()) {
+            rebuild();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${evfinder.places.rebuild-check-ms:5000}")
+    public void rebuildIfRequested() {
+        if (rebuildRequested) {
+            try {
+                rebuild();
+            } catch (Exception e) {
+                rebuildRequested = true;
+                logger.warn("Could not rebuild place index, retrying: {}", e.getMessage());
+            }
+        }
+    }
+
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            rebuildIndex();
+        }
+    }
+
+    private void rebuildIndex() {
+        // Cleared before the read, so a request arriving during it triggers another rebuild
+        rebuildRequested = false;
+        Map<Long, Optional<PlaceIndex.Doc>> applied = new HashMap<>(chargerOverrides);
+        Set<String> appliedPlaces = new HashSet<>(pendingPlaces.keySet());
+        List<PlaceIndex.Doc> docs = new ArrayList<>();
+        Map<String, double[]> localityTotals = new HashMap<>(); // key -> count, sumLat, sumLng
+        Map<String, String[]> localityNames = new HashMap<>(); // key -> name, detail
+
+        jdbcTemplate.query(CHARGER_SQL, rs -> {
+            PlaceIndex.Doc charger = chargerDoc(rs);
+            docs.add(charger);
+            List<String> parts = addressParts(rs.getString("address"));
+            for (int i = 0; i < parts.size(); i++) {
+                String part = parts.get(i);
+                String key = String.join(" ", PlaceIndex.tokenize(part));
+                double[] totals = localityTotals.computeIfAbsent(key, k -> new double[3]);
+                totals[0]++;
+                totals[1] += charger.latitude();
+                totals[2] += charger.longitude();
+                localityNames.putIfAbsent(key, new String[] { part,
+                        String.join(", ", parts.subList(i + 1, parts.size())) });
+            }
+        });
+        localityTotals.forEach((key, totals) -> {
+            String[] names = localityNames.get(key);
+            docs.add(new PlaceIndex.Doc("locality:" + key, "LOCALITY", names[0], names[1], totals[1] / totals[0],
+                    totals[2] / totals[0], 3 + Math.log1p(totals[0]), null,
+                    PlaceIndex.distinctTokens(names[0], names[1])));
+        });
+        docs.addAll(resolvedPlaces.values());
+
+        index = PlaceIndex.build(docs);
+        built = true;
+        // Overrides read before the query are part of the new index
+        applied.forEach(chargerOverrides::remove);
+        appliedPlaces.forEach(pendingPlaces::remove);
+        logger.info("Built place index: {} documents, {} terms", index.size(), index.termCount());
+    }
+
+    /**
+     * The trailing parts of an address (usually locality, region, country),
+     * skipping parts with digits such as house numbers and postcodes.
+     */
+    private static List<String> addressParts(String address) {
+        List<String> parts = new ArrayList<>();
+        if (address == null) {
+            return parts;
+        }
+        String[] split = address.split(",");
+        for (int i = Math.max(0, split.length - ADDRESS_PARTS); i < split.length; i++) {
+            String part = split[i].trim();
+            if (part.length() >= 3 && part.chars().noneMatch(Character::isDigit)) {
+                parts.add(part);
+            }
+        }
+        return parts;
+    }
+
+    private static PlaceIndex.Doc chargerDoc(ResultSet rs) throws SQLException {
+        long id = rs.getLong("id");
+        String name = rs.getString("name");
+        String address = rs.getString("address");
+        return new PlaceIndex.Doc("charger:" + id, "CHARGER", name != null ? name : "Charger " + id, address,
+                rs.getDouble("latitude"), rs.getDouble("longitude"), 1.0, id,
+                PlaceIndex.distinctTokens(name, address, rs.getString("country")));
+    }
+
+    @Override
+    public void onChanges(List<ChangeEvent> events) {
+        Set<Long> ids = new HashSet<>();
+        for (ChangeEvent event : events) {
+            if (ChangeLogService.CHARGER.equals(event.entityType())) {
+                if (event.entityId() == null) {
+                    rebuildRequested = true;
+                    return;
+                }
+                ids.add(event.entityId());
+            }
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+        Map<Long, Optional<PlaceIndex.Doc>> updates = new HashMap<>();
+        ids.forEach(id -> updates.put(id, Optional.empty()));
+        List<Long> all = new ArrayList<>(ids);
+        for (int from = 0; from < all.size(); from += LOOKUP_CHUNK) {
+            namedJdbcTemplate.query(CHARGER_SQL + " AND id IN (:ids)",
+                    Map.of("ids", all.subList(from, Math.min(from + LOOKUP_CHUNK, all.size()))),
+                    rs -> {
+                        PlaceIndex.Doc doc = chargerDoc(rs);
+                        updates.put(doc.chargerId(), Optional.of(doc));
+                    });
+        }
+        chargerOverrides.putAll(updates);
+        if (chargerOverrides.size() > maxOverrides) {
+            rebuildRequested = true;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.evfinder.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Refreshes the hottest stale heatmap cells from API Ninjas while traffic is
+ * low, so popular areas are already synced when the next driver searches them.
+ * Each run spends at most {@code budget-per-run} upstream calls and is skipped
+ * entirely while the request rate is above the quiet threshold.
+ */
+@Component
+public class PrewarmScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(PrewarmScheduler.class);
+
+    @Value("${evfinder.prewarm.enabled:true}")
+    private boolean enabled;
+
+    @Value("${evfinder.prewarm.interval-ms:300000}")
+    private long intervalMs;
+
+    @Value("${evfinder.prewarm.budget-per-run:10}")
+    private int budgetPerRun;
+
+    @Value("${evfinder.prewarm.quiet-requests-per-minute:30}")
+    private double quietRequestsPerMinute;
+
+    private final DemandHeatmapService heatmapService;
+    private final ApiNinjasService apiNinjasService;
+
+    public PrewarmScheduler(DemandHeatmapService heatmapService, ApiNinjasService apiNinjasService) {
+        this.heatmapService = heatmapService;
+        this.apiNinjasService = apiNinjasService;
+    }
+
+    @Scheduled(fixedDelayString = "${evfinder.prewarm.interval-ms:300000}",
+            initialDelayString = "${evfinder.prewarm.interval-ms:300000}")
+    public void prewarm() {
+        long recent = heatmapService.drainRecentRequests();
+        if (!enabled || budgetPerRun <= 0) {
+            return;
+        }
+        double perMinute = recent / Math.max(intervalMs / 60_000.0, 1.0 / 60);
+        if (perMinute > quietRequestsPerMinute) {
+            logger.debug("Skipping pre-warm, {} requests/min is above the quiet threshold", perMinute);
+            return;
+        }
+
+        List<DemandHeatmapService.Cell> cells = heatmapService.hottestStaleCells(budgetPerRun);
+        int synced = 0;
+        for (DemandHeatmapService.Cell cell : cells) {
+            // Failed cells stay stale and are retried on a later run
+            if (apiNinjasService.syncAround(cell.latitude(), cell.longitude(), ApiNinjasService.DEFAULT_RADIUS_KM)) {
+                heatmapService.markSynced(heatmapService.cellsWithin(cell.latitude(), cell.longitude(),
+                        ApiNinjasService.DEFAULT_RADIUS_KM));
+                synced++;
+            }
+        }
+        if (!cells.isEmpty()) {
+            logger.info("Pre-warmed {} of {} popular cells", synced, cells.size());
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.evfinder.service;
+
+import com.evfinder.dto.RouteChargerResult;
+import com.evfinder.model.Charger;
+import com.evfinder.repository.ChargerRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Finds chargers within a corridor around a driving route.
+ *
+ * The route is decoded once and its segments are bucketed into a lat/lng grid
+ * whose cells are at least one corridor width wide. Candidates come from one
+ * query over latitude bands, each only as wide as the grid cells the route
+ * touches in it, and only their ids and coordinates are read. Each candidate
+ * measures against the segments registered in its own cell, and full entities
+ * are loaded for the chargers inside the corridor only. A long diagonal route
+ * therefore reads about as many rows as the corridor holds, not its whole
+ * bounding box.
+ *
+ * Route longitudes are unwrapped so a route crossing the antimeridian stays
+ * continuous; query ranges past +/-180 are split back into valid ones and
+ * candidates are shifted by whole turns onto the route's longitudes.
+ */
+@Service
+public class RouteCorridorService {
+
+    private static final double KM_PER_DEGREE = 111.32;
+    private static final double MIN_CELL_KM = 1.0;
+    private static final double BAND_KM = 20.0;
+    private static final int MAX_BANDS = 250;
+
+    private record Candidate(long id, double distanceAlongRouteKm, double distanceFromRouteKm) {
+    }
+
+    private final ChargerRepository chargerRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    public RouteCorridorService(ChargerRepository chargerRepository, JdbcTemplate jdbcTemplate) {
+        this.chargerRepository = chargerRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public List<RouteChargerResult> findAlongRoute(String encodedPolyline, double corridorKm, int precision) {
+        List<double[]> route = decodePolyline(encodedPolyline, precision);
+        if (route.size() < 2) {
+            throw new IllegalArgumentException("Route must contain at least two points");
+        }
+
+        int segments = route.size() - 1;
+        double[] cumulativeKm = new double[route.size()];
+        double minLat = Double.MAX_VALUE, maxLat = -Double.MAX_VALUE;
+        double minLng = Double.MAX_VALUE, maxLng = -Double.MAX_VALUE;
+        for (int i = 0; i < route.size(); i++) {
+            double[] p = route.get(i);
+            if (i > 0) {
+                // Take the short way round, e.g. 179.9 -> -179.9 becomes 179.9 -> 180.1
+                p[1] -= 360 * Math.round((p[1] - route.get(i - 1)[1]) / 360);
+                cumulativeKm[i] = cumulativeKm[i - 1] + segmentLengthKm(route.get(i - 1), p);
+            }
+            minLat = Math.min(minLat, p[0]);
+            maxLat = Math.max(maxLat, p[0]);
+            minLng = Math.min(minLng, p[1]);
+            maxLng = Math.max(maxLng, p[1]);
+        }
+
+        // Longitude degrees shrink towards the poles; size cells for the worst latitude
+        // on the route so that every cell is at least one corridor wide everywhere.
+        double maxAbsLat = Math.min(89.0, Math.max(Math.abs(minLat), Math.abs(maxLat)));
+        double lngScale = Math.cos(Math.toRadians(maxAbsLat));
+        double cellKm = Math.max(corridorKm, MIN_CELL_KM);
+        double cellLatDeg = cellKm / KM_PER_DEGREE;
+        double cellLngDeg = cellLatDeg / lngScale;
+        double padLatDeg = corridorKm / KM_PER_DEGREE;
+        double padLngDeg = padLatDeg / lngScale;
+
+        Map<Long, List<Integer>> grid = new HashMap<>();
+        for (int i = 0; i < segments; i++) {
+            double[] a = route.get(i);
+            double[] b = route.get(i + 1);
+            // Long segments are registered piece by piece so a sparse polyline does not
+            // flood every cell of its bounding box.
+            int pieces = Math.max(1, (int) Math.ceil((cumulativeKm[i + 1] - cumulativeKm[i]) / cellKm));
+            for (int k = 0; k < pieces; k++) {
+                double t0 = (double) k / pieces;
+                double t1 = (double) (k + 1) / pieces;
+                double lat0 = a[0] + (b[0] - a[0]) * t0, lat1 = a[0] + (b[0] - a[0]) * t1;
+                double lng0 = a[1] + (b[1] - a[1]) * t0, lng1 = a[1] + (b[1] - a[1]) * t1;
+                int rowFrom = cell(Math.min(lat0, lat1) - padLatDeg, cellLatDeg);
+                int rowTo = cell(Math.max(lat0, lat1) + padLatDeg, cellLatDeg);
+                int colFrom = cell(Math.min(lng0, lng1) - padLngDeg, cellLngDeg);
+                int colTo = cell(Math.max(lng0, lng1) + padLngDeg, cellLngDeg);
+                for (int row = rowFrom; row <= rowTo; row++) {
+                    for (int col = colFrom; col <= colTo; col++) {
+                        List<Integer> bucket = grid.computeIfAbsent(cellKey(row, col), key -> new ArrayList<>(2));
+                        if (bucket.isEmpty() || bucket.get(bucket.size() - 1) != i) {
+                            bucket.add(i);
+                        }
+                    }
+                }
+            }
+        }
+
+        // Group grid rows into latitude bands and query each band only across the
+        // columns the route occupies in it
+        int minRow = Integer.MAX_VALUE, maxRow = Integer.MIN_VALUE;
+        for (long key : grid.keySet()) {
+            minRow = Math.min(minRow, (int) (key >> 32));
+            maxRow = Math.max(maxRow, (int) (key >> 32));
+        }
+        int bandRows = Math.max((int) Math.ceil(BAND_KM / cellKm),
+                (int) Math.ceil((maxRow - minRow + 1) / (double) MAX_BANDS));
+        Map<Integer, int[]> bandCols = new TreeMap<>();
+        for (long key : grid.keySet()) {
+            int col = (int) key;
+            bandCols.merge(Math.floorDiv((int) (key >> 32), bandRows), new int[] { col, col },
+                    (a, b) -> new int[] { Math.min(a[0], b[0]), Math.max(a[1], b[1]) });
+        }
+        StringBuilder sql = new StringBuilder("SELECT id, latitude, longitude FROM chargers WHERE enabled = TRUE AND (");
+        List<Object> args = new ArrayList<>();
+        for (Map.Entry<Integer, int[]> band : bandCols.entrySet()) {
+            if (!args.isEmpty()) {
+                sql.append(" OR ");
+            }
+            List<double[]> lngRanges = wrappedRanges(band.getValue()[0] * cellLngDeg,
+                    (band.getValue()[1] + 1) * cellLngDeg);
+            for (int k = 0; k < lngRanges.size(); k++) {
+                sql.append(k > 0 ? " OR " : "").append("(latitude BETWEEN ? AND ? AND longitude BETWEEN ? AND ?)");
+                args.add(band.getKey() * bandRows * cellLatDeg);
+                args.add((band.getKey() + 1) * bandRows * cellLatDeg);
+                args.add(lngRanges.get(k)[0]);
+                args.add(lngRanges.get(k)[1]);
+            }
+        }
+        sql.append(")");
+
+        double lngFrom = minLng - padLngDeg;
+        double lngTo = maxLng + padLngDeg;
+        List<Candidate> inCorridor = new ArrayList<>();
+        jdbcTemplate.query(sql.toString(), rs -> {
+            double lat = rs.getDouble(2);
+            double lng = rs.getDouble(3);
+            double bestOffset = Double.MAX_VALUE;
+            double bestAlong = 0;
+            // Every whole-turn shift of the charger that falls within the route's unwrapped longitudes
+            for (double shifted = lng + 360 * Math.floor((lngFrom - lng) / 360); shifted <= lngTo; shifted += 360) {
+                List<Integer> bucket = grid.get(cellKey(cell(lat, cellLatDeg), cell(shifted, cellLngDeg)));
+                if (bucket == null) {
+                    continue;
+                }
+                for (int i : bucket) {
+                    double[] projection = project(route.get(i), route.get(i + 1), lat, shifted);
+                    if (projection[0] < bestOffset) {
+                        bestOffset = projection[0];
+                        bestAlong = cumulativeKm[i] + projection[1];
+                    }
+                }
+            }
+            if (bestOffset <= corridorKm) {
+                inCorridor.add(new Candidate(rs.getLong(1), bestAlong, bestOffset));
+            }
+        }, args.toArray());
+
+        Map<Long, Charger> chargers = new HashMap<>();
+        if (!inCorridor.isEmpty()) {
+            chargerRepository.findAllById(inCorridor.stream().map(Candidate::id).toList())
+                    .forEach(c -> chargers.put(c.getId(), c));
+        }
+        List<RouteChargerResult> results = new ArrayList<>(inCorridor.size());
+        for (Candidate candidate : inCorridor) {
+            Charger charger = chargers.get(candidate.id());
+            if (charger != null) {
+                results.add(new RouteChargerResult(charger, candidate.distanceAlongRouteKm(),
+                        candidate.distanceFromRouteKm()));
+            }
+        }
+
+        results.sort(Comparator.comparingDouble(RouteChargerResult::getDistanceAlongRouteKm));
+        return results;
+    }
+
+    /**
+     * Decodes a Google encoded polyline into [lat, lng] pairs.
+     */
+    static List<double[]> decodePolyline(String encoded, int precision) {
+        if (encoded == null || encoded.isEmpty()) {
+            throw new IllegalArgumentException("Polyline is required");
+        }
+        double factor = Math.pow(10, precision);
+        List<double[]> points = new ArrayList<>();
+        int index = 0;
+        long lat = 0;
+        long lng = 0;
+        while (index < encoded.length()) {
+            long[] delta = new long[2];
+            for (int axis = 0; axis < 2; axis++) {
+                long result = 0;
+                int shift = 0;
+                int b;
+                do {
+                    if (index >= encoded.length()) {
+                        throw new IllegalArgumentException("Malformed polyline at position " + index);
+                    }
+                    b = encoded.charAt(index++) - 63;
+                    if (b < 0 || b > 63) {
+                        throw new IllegalArgumentException("Malformed polyline at position " + (index - 1));
+                    }
+                    result |= (long) (b & 0x1f) << shift;
+                    shift += 5;
+                } while (b >= 0x20);
+                delta[axis] = (result & 1) != 0 ? ~(result >> 1) : (result >> 1);
+            }
+            lat += delta[0];
+            lng += delta[1];
+            points.add(new double[] { lat / factor, lng / factor });
+        }
+        return points;
+    }
+
+    /**
+     * Returns {distance from segment in km, distance along the segment in km} using a
+     * local equirectangular frame, which is accurate at corridor scale.
+     */
+    private static double[] project(double[] a, double[] b, double lat, double lng) {
+        double scale = Math.cos(Math.toRadians((a[0] + b[0]) / 2));
+        double bx = (b[1] - a[1]) * scale * KM_PER_DEGREE;
+        double by = (b[0] - a[0]) * KM_PER_DEGREE;
+        double px = (lng - a[1]) * scale * KM_PER_DEGREE;
+        double py = (lat - a[0]) * KM_PER_DEGREE;
+        double lengthSq = bx * bx + by * by;
+        double t = lengthSq == 0 ? 0 : Math.max(0, Math.min(1, (px * bx + py * by) / lengthSq));
+        double dx = px - t * bx;
+        double dy = py - t * by;
+        return new double[] { Math.sqrt(dx * dx + dy * dy), t * Math.sqrt(lengthSq) };
+    }
+
+    /**
+     * Splits a longitude range, which may leave [-180, 180] after unwrapping,
+     * into at most two ranges within it.
+     */
+    private static List<double[]> wrappedRanges(double from, double to) {
+        if (to - from >= 360) {
+            return List.of(new double[] { -180, 180 });
+        }
+        double shift = 360 * Math.floor((from + 180) / 360);
+        double lo = from - shift;
+        double hi = to - shift;
+        if (hi <= 180) {
+            return List.of(new double[] { lo, hi });
+        }
+        return List.of(new double[] { lo, 180 }, new double[] { -180, hi - 360 });
+    }
+
+    private static double segmentLengthKm(double[] a, double[] b) {
+        double scale = Math.cos(Math.toRadians((a[0] + b[0]) / 2));
+        double dx = (b[1] - a[1]) * scale * KM_PER_DEGREE;
+        double dy = (b[0] - a[0]) * KM_PER_DEGREE;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    private static int cell(double value, double cellSize) {
+        return (int) Math.floor(value / cellSize);
+    }
+
+    private static long cellKey(int row, int col) {
+        return ((long) row << 32) | (col & 0xffffffffL);
+    }
+}
@@ -0,0 +1,414 @@
+package com.evfinder.service;
+
+import com.evfinder.dto.OccupancyCell;
+import com.evfinder.model.Charger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Charger status history and hourly occupancy rollups.
+ *
+ * Each enabled charger has one open interval in charger_status_state. When its
+ * status (or area) changes, the interval is closed: its seconds are added to
+ * the charger's and the area's hourly rollups, a transition row is appended,
+ * and a new interval starts. Disabling or deleting a charger closes its
+ * interval without opening another. The hourly job adds the elapsed part of
+ * every open interval up to the hour boundary, so the rollups stay complete
+ * for chargers that never change. Writes join the caller's transaction and
+ * lock the state rows they touch.
+ */
+@Service
+public class StatusHistoryService {
+    private static final Logger logger = LoggerFactory.getLogger(StatusHistoryService.class);
+
+    private static final int AVAILABLE = 0;
+    private static final int OCCUPIED = 1;
+    private static final int OFFLINE = 2;
+
+    private static final String CHARGER_ROLLUP_SQL = "INSERT INTO charger_occupancy_hourly "
+            + "(charger_id, hour_start, available_seconds, occupied_seconds, offline_seconds) VALUES (?, ?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE available_seconds = available_seconds + VALUES(available_seconds), "
+            + "occupied_seconds = occupied_seconds + VALUES(occupied_seconds), "
+            + "offline_seconds = offline_seconds + VALUES(offline_seconds)";
+
+    private static final String AREA_ROLLUP_SQL = "INSERT INTO area_occupancy_hourly "
+            + "(area_row, area_col, hour_start, available_seconds, occupied_seconds, offline_seconds) "
+            + "VALUES (?, ?, ?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE available_seconds = available_seconds + VALUES(available_seconds), "
+            + "occupied_seconds = occupied_seconds + VALUES(occupied_seconds), "
+            + "offline_seconds = offline_seconds + VALUES(offline_seconds)";
+
+    private static final String STATE_UPSERT_SQL = "INSERT INTO charger_status_state "
+            + "(charger_id, status, area_row, area_col, accrued_until) VALUES (?, ?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE status = VALUES(status), area_row = VALUES(area_row), "
+            + "area_col = VALUES(area_col), accrued_until = VALUES(accrued_until)";
+
+    // A new interval starts empty; apply() then treats it like any other state
+    private static final String STATE_INSERT_SQL = "INSERT IGNORE INTO charger_status_state "
+            + "(charger_id, status, area_row, area_col, accrued_until) VALUES (?, NULL, NULL, NULL, ?)";
+
+    private static final String TRANSITION_SQL = "INSERT INTO charger_status_transitions "
+            + "(charger_id, from_status, to_status, changed_at) VALUES (?, ?, ?, ?)";
+
+    @Value("${evfinder.occupancy.area-cell-deg:0.1}")
+    private double areaCellDeg;
+
+    @Value("${evfinder.occupancy.accrual-batch-size:5000}")
+    private int accrualBatchSize;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public StatusHistoryService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    private record State(long chargerId, String status, Integer areaRow, Integer areaCol, LocalDateTime accruedUntil) {
+    }
+
+    private record ChargerHour(long chargerId, LocalDateTime hour) implements Comparable<ChargerHour> {
+        @Override
+        public int compareTo(ChargerHour other) {
+            int c = Long.compare(chargerId, other.chargerId);
+            return c != 0 ? c : hour.compareTo(other.hour);
+        }
+    }
+
+    private record AreaHour(int areaRow, int areaCol, LocalDateTime hour) implements Comparable<AreaHour> {
+        @Override
+        public int compareTo(AreaHour other) {
+            int c = Integer.compare(areaRow, other.areaRow);
+            if (c == 0) {
+                c = Integer.compare(areaCol, other.areaCol);
+            }
+            return c != 0 ? c : hour.compareTo(other.hour);
+        }
+    }
+
+    private record Change(long chargerId, String status, Integer areaRow, Integer areaCol, boolean removed) {
+    }
+
+    /**
+     * Records the current status, position and enabled flag of the given
+     * saved chargers.
+     */
+    public void recordAll(Collection<Charger> chargers) {
+        List<Change> changes = new ArrayList<>(chargers.size());
+        for (Charger charger : chargers) {
+            if (charger.getId() != null) {
+                changes.add(new Change(charger.getId(), charger.getStatus(), areaIndex(charger.getLatitude()),
+                        areaIndex(charger.getLongitude()), !Boolean.TRUE.equals(charger.getEnabled())));
+            }
+        }
+        apply(changes);
+    }
+
+    /**
+     * Records the current state of the given chargers as stored, e.g. after a
+     * bulk status change or toggle.
+     */
+    public void recordCurrent(Collection<Long> chargerIds) {
+        if (chargerIds.isEmpty()) {
+            return;
+        }
+        List<Change> changes = new ArrayList<>(chargerIds.size());
+        namedJdbcTemplate.query("SELECT id, status, latitude, longitude, enabled FROM chargers WHERE id IN (:ids)",
+                Map.of("ids", chargerIds),
+                rs -> {
+                    changes.add(new Change(rs.getLong(1), rs.getString(2), areaIndex(rs.getObject(3, Double.class)),
+                            areaIndex(rs.getObject(4, Double.class)), !rs.getBoolean(5)));
+                });
+        apply(changes);
+    }
+
+    /**
+     * Closes the open intervals of deleted chargers.
+     */
+    public void recordRemoved(Collection<Long> chargerIds) {
+        List<Change> changes = new ArrayList<>(chargerIds.size());
+        for (Long id : chargerIds) {
+            changes.add(new Change(id, null, null, null, true));
+        }
+        apply(changes);
+    }
+
+    private void apply(List<Change> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, State> states = lockStates(changes, now);
+        Accrual accrual = new Accrual();
+        List<Object[]> transitions = new ArrayList<>();
+        Map<Long, State> upserts = new HashMap<>();
+        List<Long> removed = new ArrayList<>();
+
+        for (Change change : changes) {
+            State state = states.get(change.chargerId());
+            if (change.removed()) {
+                if (state != null) {
+                    accrual.add(state, now);
+                    transitions.add(transition(change.chargerId(), state.status(), null, now));
+                    states.remove(change.chargerId());
+                    upserts.remove(change.chargerId());
+                    removed.add(change.chargerId());
+                }
+                continue;
+            }
+            if (state != null && Objects.equals(state.status(), change.status())
+                    && Objects.equals(state.areaRow(), change.areaRow())
+                    && Objects.equals(state.areaCol(), change.areaCol())) {
+                continue;
+            }
+            if (state == null || !Objects.equals(state.status(), change.status())) {
+                transitions.add(transition(change.chargerId(), state != null ? state.status() : null,
+                        change.status(), now));
+            }
+            if (state != null) {
+                accrual.add(state, now);
+            }
+            State next = new State(change.chargerId(), change.status(), change.areaRow(), change.areaCol(), now);
+            states.put(change.chargerId(), next);
+            upserts.put(change.chargerId(), next);
+        }
+
+        accrual.write();
+        if (!transitions.isEmpty()) {
+            jdbcTemplate.batchUpdate(TRANSITION_SQL, transitions);
+        }
+        if (!upserts.isEmpty()) {
+            List<Object[]> rows = new ArrayList<>(upserts.size());
+            for (State state : upserts.values()) {
+                rows.add(new Object[] { state.chargerId(), state.status(), state.areaRow(), state.areaCol(),
+                        Timestamp.valueOf(state.accruedUntil()) });
+            }
+            jdbcTemplate.batchUpdate(STATE_UPSERT_SQL, rows);
+        }
+        if (!removed.isEmpty()) {
+            namedJdbcTemplate.update("DELETE FROM charger_status_state WHERE charger_id IN (:ids)",
+                    Map.of("ids", removed));
+        }
+    }
+
+    /**
+     * Creates the missing intervals of tracked chargers, then locks every
+     * state row involved. Inserting first means the locking read only ever
+     * matches existing rows, so it takes record locks rather than the gap
+     * locks that make concurrent inserts of new chargers deadlock. Ids are
+     * handled in ascending order so writers lock in the same order.
+     */
+    private Map<Long, State> lockStates(List<Change> changes, LocalDateTime now) {
+        List<Long> chargerIds = changes.stream().map(Change::chargerId).distinct().sorted().toList();
+        List<Object[]> missing = new ArrayList<>();
+        changes.stream().filter(change -> !change.removed()).map(Change::chargerId).distinct().sorted()
+                .forEach(id -> missing.add(new Object[] { id, Timestamp.valueOf(now) }));
+        if (!missing.isEmpty()) {
+            jdbcTemplate.batchUpdate(STATE_INSERT_SQL, missing);
+        }
+        Map<Long, State> states = new HashMap<>();
+        namedJdbcTemplate.query("SELECT charger_id, status, area_row, area_col, accrued_until "
+                + "FROM charger_status_state WHERE charger_id IN (:ids) ORDER BY charger_id FOR UPDATE",
+                Map.of("ids", chargerIds),
+                rs -> {
+                    State state = new State(rs.getLong(1), rs.getString(2), rs.getObject(3, Integer.class),
+                            rs.getObject(4, Integer.class), rs.getTimestamp(5).toLocalDateTime());
+                    states.put(state.chargerId(), state);
+                });
+        return states;
+    }
+
+    private static Object[] transition(long chargerId, String from, String to, LocalDateTime at) {
+        return new Object[] { chargerId, from, to, Timestamp.valueOf(at) };
+    }
+
+    /**
+     * Adds every open interval up to the start of the current hour, starts
+     * tracking enabled chargers that have no interval yet (e.g. rows that
+     * predate the history) and drops intervals of chargers that are gone or
+     * disabled. The reconciliation walks both tables in id ranges of
+     * {@code accrual-batch-size}, one short transaction per range. State rows
+     * are claimed with SKIP LOCKED, so replicas running the job at the same
+     * time, and concurrent status changes, never count the same seconds twice.
+     */
+    @Scheduled(cron = "${evfinder.occupancy.rollup-cron:5 0 * * * *}")
+    public void accrueOpenIntervals() {
+        LocalDateTime hour = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+        forEachIdRange("chargers", "id", (from, to) -> jdbcTemplate.update("INSERT IGNORE INTO charger_status_state "
+                + "(charger_id, status, area_row, area_col, accrued_until) "
+                + "SELECT c.id, c.status, FLOOR(c.latitude / ?), FLOOR(c.longitude / ?), ? FROM chargers c "
+                + "LEFT JOIN charger_status_state s ON s.charger_id = c.id "
+                + "WHERE c.id > ? AND c.id <= ? AND c.enabled = TRUE AND s.charger_id IS NULL",
+                areaCellDeg, areaCellDeg, Timestamp.valueOf(hour), from, to));
+        forEachIdRange("charger_status_state", "charger_id", (from, to) -> jdbcTemplate.update(
+                "DELETE s FROM charger_status_state s LEFT JOIN chargers c ON c.id = s.charger_id "
+                        + "WHERE s.charger_id > ? AND s.charger_id <= ? AND (c.id IS NULL OR c.enabled = FALSE)",
+                from, to));
+
+        long total = 0;
+        int batch;
+        do {
+            batch = transactionTemplate.execute(status -> accrueBatch(hour));
+            total += batch;
+        } while (batch == accrualBatchSize);
+        logger.debug("Accrued {} open status intervals up to {}", total, hour);
+    }
+
+    /**
+     * Calls {@code action} for consecutive (from, to] ranges of {@code column}
+     * holding up to {@code accrual-batch-size} rows each, each range in its own
+     * transaction.
+     */
+    private void forEachIdRange(String table, String column, BiConsumer<Long, Long> action) {
+        long from = 0;
+        while (true) {
+            List<Long> bound = jdbcTemplate.queryForList("SELECT MAX(" + column + ") FROM (SELECT " + column
+                    + " FROM " + table + " WHERE " + column + " > ? ORDER BY " + column + " LIMIT ?) batch",
+                    Long.class, from, accrualBatchSize);
+            Long to = bound.isEmpty() ? null : bound.get(0);
+            if (to == null) {
+                return;
+            }
+            long start = from;
+            transactionTemplate.executeWithoutResult(status -> action.accept(start, to));
+            from = to;
+        }
+    }
+
+    private int accrueBatch(LocalDateTime until) {
+        List<State> states = jdbcTemplate.query("SELECT charger_id, status, area_row, area_col, accrued_until "
+                + "FROM charger_status_state WHERE accrued_until < ? ORDER BY charger_id LIMIT ? "
+                + "FOR UPDATE SKIP LOCKED",
+                (rs, rowNum) -> new State(rs.getLong(1), rs.getString(2), rs.getObject(3, Integer.class),
+                        rs.getObject(4, Integer.class), rs.getTimestamp(5).toLocalDateTime()),
+                Timestamp.valueOf(until), accrualBatchSize);
+        if (states.isEmpty()) {
+            return 0;
+        }
+        Accrual accrual = new Accrual();
+        List<Long> ids = new ArrayList<>(states.size());
+        for (State state : states) {
+            accrual.add(state, until);
+            ids.add(state.chargerId());
+        }
+        accrual.write();
+        namedJdbcTemplate.update("UPDATE charger_status_state SET accrued_until = :until WHERE charger_id IN (:ids)",
+                new MapSqlParameterSource("until", Timestamp.valueOf(until)).addValue("ids", ids));
+        return states.size();
+    }
+
+    /**
+     * Availability per area cell over {@code [from, to)}, optionally limited to
+     * a bounding box, answered from the hourly area rollups.
+     */
+    public List<OccupancyCell> heatmap(LocalDateTime from, LocalDateTime to, Double minLat, Double maxLat,
+            Double minLng, Double maxLng) {
+        StringBuilder sql = new StringBuilder("SELECT area_row, area_col, SUM(available_seconds), "
+                + "SUM(occupied_seconds), SUM(offline_seconds) FROM area_occupancy_hourly "
+                + "WHERE hour_start >= :from AND hour_start < :to");
+        MapSqlParameterSource params = new MapSqlParameterSource("from", Timestamp.valueOf(from))
+                .addValue("to", Timestamp.valueOf(to));
+        if (minLat != null) {
+            sql.append(" AND area_row >= :minRow");
+            params.addValue("minRow", areaIndex(minLat));
+        }
+        if (maxLat != null) {
+            sql.append(" AND area_row <= :maxRow");
+            params.addValue("maxRow", areaIndex(maxLat));
+        }
+        if (minLng != null) {
+            sql.append(" AND area_col >= :minCol");
+            params.addValue("minCol", areaIndex(minLng));
+        }
+        if (maxLng != null) {
+            sql.append(" AND area_col <= :maxCol");
+            params.addValue("maxCol", areaIndex(maxLng));
+        }
+        sql.append(" GROUP BY area_row, area_col");
+        return namedJdbcTemplate.query(sql.toString(), params, (rs, rowNum) -> {
+            long available = rs.getLong(3);
+            long occupied = rs.getLong(4);
+            long offline = rs.getLong(5);
+            long tracked = available + occupied + offline;
+            return new OccupancyCell((rs.getInt(1) + 0.5) * areaCellDeg, (rs.getInt(2) + 0.5) * areaCellDeg,
+                    available, occupied, offline, tracked > 0 ? (double) available / tracked : 0);
+        });
+    }
+
+    private Integer areaIndex(Double degrees) {
+        return degrees != null ? (int) Math.floor(degrees / areaCellDeg) : null;
+    }
+
+    private static int bucket(String status) {
+        if ("AVAILABLE".equals(status)) {
+            return AVAILABLE;
+        }
+        return "OCCUPIED".equals(status) ? OCCUPIED : OFFLINE;
+    }
+
+    /**
+     * Seconds per status and hour, collected in memory and written as one
+     * batch of upserts per rollup table. Rows are written in key order so
+     * concurrent writers lock shared area rows in the same order.
+     */
+    private class Accrual {
+        private final Map<ChargerHour, long[]> chargerHours = new TreeMap<>();
+        private final Map<AreaHour, long[]> areaHours = new TreeMap<>();
+
+        void add(State state, LocalDateTime until) {
+            int bucket = bucket(state.status());
+            LocalDateTime start = state.accruedUntil();
+            while (start.isBefore(until)) {
+                LocalDateTime hour = start.truncatedTo(ChronoUnit.HOURS);
+                LocalDateTime end = hour.plusHours(1).isBefore(until) ? hour.plusHours(1) : until;
+                long seconds = Duration.between(start, end).toSeconds();
+                if (seconds > 0) {
+                    chargerHours.computeIfAbsent(new ChargerHour(state.chargerId(), hour), k -> new long[3])[bucket] += seconds;
+                    if (state.areaRow() != null && state.areaCol() != null) {
+                        areaHours.computeIfAbsent(new AreaHour(state.areaRow(), state.areaCol(), hour),
+                                k -> new long[3])[bucket] += seconds;
+                    }
+                }
+                start = end;
+            }
+        }
+
+        void write() {
+            if (!chargerHours.isEmpty()) {
+                List<Object[]> rows = new ArrayList<>(chargerHours.size());
+                chargerHours.forEach((key, seconds) -> rows.add(new Object[] { key.chargerId(),
+                        Timestamp.valueOf(key.hour()), seconds[AVAILABLE], seconds[OCCUPIED], seconds[OFFLINE] }));
+                jdbcTemplate.batchUpdate(CHARGER_ROLLUP_SQL, rows);
+            }
+            if (!areaHours.isEmpty()) {
+                List<Object[]> rows = new ArrayList<>(areaHours.size());
+                areaHours.forEach((key, seconds) -> rows.add(new Object[] { key.areaRow(), key.areaCol(),
+                        Timestamp.valueOf(key.hour()), seconds[AVAILABLE], seconds[OCCUPIED], seconds[OFFLINE] }));
+                jdbcTemplate.batchUpdate(AREA_ROLLUP_SQL, rows);
+            }
+        }
+    }
+}
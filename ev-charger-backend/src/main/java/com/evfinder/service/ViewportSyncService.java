@@ -0,0 +1,174 @@
+package com.evfinder.service;
+
+import com.evfinder.security.RateLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Syncs a whole map viewport from API Ninjas. The bounding box is split into
+ * tiles that each fit inside one upstream query radius, the stale tiles are
+ * fetched concurrently on a bounded pool, and everything returned is
+ * deduplicated and saved in a single transaction, so a wide viewport costs
+ * about one upstream round trip of wall-clock time.
+ *
+ * Upstream calls made here draw from a per-minute budget; tiles over budget
+ * are left stale and picked up by a later sync.
+ */
+@Service
+public class ViewportSyncService {
+    private static final Logger logger = LoggerFactory.getLogger(ViewportSyncService.class);
+
+    private static final double KM_PER_DEGREE = 111.32;
+
+    @Value("${evfinder.viewport.max-tiles:16}")
+    private int maxTiles;
+
+    @Value("${evfinder.viewport.timeout-ms:20000}")
+    private long timeoutMs;
+
+    private final ApiNinjasService apiNinjasService;
+    private final DemandHeatmapService heatmapService;
+    private final RateLimiter.Budget upstreamBudget;
+    private final ExecutorService fetchPool;
+
+    public record Tile(double latitude, double longitude, double minLat, double minLng, double maxLat,
+            double maxLng) {
+    }
+
+    /**
+     * The requested bounding box is invalid or too large to sync at once.
+     */
+    public static class InvalidViewportException extends RuntimeException {
+        InvalidViewportException(String message) {
+            super(message);
+        }
+    }
+
+    public record Result(int tiles, int fetched, int fresh, int throttled, int failed, int received, int inserted,
+            int updated, long elapsedMs) {
+    }
+
+    public ViewportSyncService(ApiNinjasService apiNinjasService, DemandHeatmapService heatmapService,
+            @Value("${evfinder.viewport.parallelism:4}") int parallelism,
+            @Value("${evfinder.viewport.upstream-requests-per-minute:60}") int upstreamRequestsPerMinute,
+            @Value("${evfinder.viewport.upstream-burst:16}") int upstreamBurst) {
+        this.apiNinjasService = apiNinjasService;
+        this.heatmapService = heatmapService;
+        this.upstreamBudget = new RateLimiter.Budget(new RateLimiter.Limit(upstreamRequestsPerMinute, upstreamBurst));
+        AtomicInteger counter = new AtomicInteger();
+        this.fetchPool = Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+            Thread thread = new Thread(runnable, "viewport-sync-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public Result sync(double minLat, double minLng, double maxLat, double maxLng) {
+        long started = System.currentTimeMillis();
+        List<Tile> tiles = tiles(minLat, minLng, maxLat, maxLng, ApiNinjasService.DEFAULT_RADIUS_KM, maxTiles);
+
+        int fresh = 0;
+        int throttled = 0;
+        List<Tile> pending = new ArrayList<>();
+        List<Future<List<ApiNinjasService.UpstreamCharger>>> futures = new ArrayList<>();
+        for (Tile tile : tiles) {
+            if (heatmapService.isFresh(heatmapService.cellsInBox(tile.minLat(), tile.minLng(), tile.maxLat(),
+                    tile.maxLng()))) {
+                fresh++;
+            } else if (upstreamBudget.tryAcquire() > 0) {
+                throttled++;
+            } else {
+                pending.add(tile);
+                futures.add(fetchPool.submit(() -> apiNinjasService.fetchChargers(tile.latitude(), tile.longitude(),
+                        ApiNinjasService.DEFAULT_RADIUS_KM)));
+            }
+        }
+
+        long deadline = started + timeoutMs;
+        int failed = 0;
+        List<Tile> synced = new ArrayList<>();
+        List<ApiNinjasService.UpstreamCharger> received = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            Future<List<ApiNinjasService.UpstreamCharger>> future = futures.get(i);
+            try {
+                received.addAll(future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS));
+                synced.add(pending.get(i));
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                failed++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.subList(i, futures.size()).forEach(f -> f.cancel(true));
+                failed += futures.size() - i;
+                break;
+            } catch (Exception e) {
+                logger.warn("Viewport tile {},{} failed: {}", pending.get(i).latitude(), pending.get(i).longitude(),
+                        e.getMessage());
+                failed++;
+            }
+        }
+
+        ApiNinjasService.SaveResult saved = apiNinjasService.saveAll(received);
+        // A tile's query circle covers the cells centred in the tile and around it
+        Set<Long> cells = new HashSet<>();
+        for (Tile tile : synced) {
+            cells.addAll(heatmapService.cellsInBox(tile.minLat(), tile.minLng(), tile.maxLat(), tile.maxLng()));
+            cells.addAll(heatmapService.cellsWithin(tile.latitude(), tile.longitude(),
+                    ApiNinjasService.DEFAULT_RADIUS_KM));
+        }
+        heatmapService.markSynced(cells);
+        Result result = new Result(tiles.size(), synced.size(), fresh, throttled, failed, received.size(),
+                saved.inserted().size(), saved.updated(), System.currentTimeMillis() - started);
+        logger.info("Viewport sync {}", result);
+        return result;
+    }
+
+    /**
+     * Splits the box into an even grid of tiles, each no larger than the square
+     * inscribed in a circle of {@code radiusKm}, so the tiles' upstream queries
+     * cover the whole box. Tile widths are sized at the row edge nearest the
+     * equator, where a degree of longitude is widest. Boxes needing more than
+     * {@code maxTiles} tiles are rejected.
+     */
+    static List<Tile> tiles(double minLat, double minLng, double maxLat, double maxLng, double radiusKm,
+            int maxTiles) {
+        if (!(minLat <= maxLat && minLng <= maxLng) || minLat < -90 || maxLat > 90 || minLng < -180
+                || maxLng > 180) {
+            throw new InvalidViewportException("Invalid bounding box");
+        }
+        double sideKm = radiusKm * Math.sqrt(2);
+        int rows = Math.max(1, (int) Math.ceil((maxLat - minLat) * KM_PER_DEGREE / sideKm));
+        double rowHeight = (maxLat - minLat) / rows;
+        List<Tile> tiles = new ArrayList<>();
+        for (int r = 0; r < rows; r++) {
+            double south = minLat + r * rowHeight;
+            double north = south + rowHeight;
+            double widestLat = south <= 0 && north >= 0 ? 0 : Math.min(Math.abs(south), Math.abs(north));
+            double kmPerLngDegree = KM_PER_DEGREE * Math.max(Math.cos(Math.toRadians(widestLat)), 0.01);
+            int cols = Math.max(1, (int) Math.ceil((maxLng - minLng) * kmPerLngDegree / sideKm));
+            if ((long) rows * cols > maxTiles || tiles.size() + cols > maxTiles) {
+                throw new InvalidViewportException("Viewport is too large to sync at once, at most " + maxTiles
+                        + " upstream tiles");
+            }
+            double colWidth = (maxLng - minLng) / cols;
+            for (int c = 0; c < cols; c++) {
+                double west = minLng + c * colWidth;
+                tiles.add(new Tile(south + rowHeight / 2, west + colWidth / 2, south, west, north, west + colWidth));
+            }
+        }
+        return tiles;
+    }
+}
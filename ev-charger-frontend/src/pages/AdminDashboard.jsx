@@ -1,4 +1,4 @@
-import { useState, useEffect } from 'react';
+import { useState, useEffect, useRef } from 'react';
 import axios from 'axios';
 import {
     Users,
@@ -15,6 +15,19 @@ import {
     LogOut
 } from 'lucide-react';
 
+// Applies a change feed page to a list: replaces changed rows and drops deleted ones; new rows are
+// appended unless the list is a search result they may not match
+const mergeChanges = (list, changed, deletedIds, appendNew) => {
+    const removed = new Set(deletedIds);
+    const updates = new Map(changed.map(item => [item.id, item]));
+    const merged = list.filter(item => !removed.has(item.id)).map(item => {
+        const update = updates.get(item.id);
+        updates.delete(item.id);
+        return update || item;
+    });
+    return appendNew ? [...merged, ...updates.values()] : merged;
+};
+
 const AdminDashboard = ({ user, logout }) => {
     const [activeTab, setActiveTab] = useState('overview');
     const [stats, setStats] = useState({
@@ -38,13 +51,60 @@ const AdminDashboard = ({ user, logout }) => {
         headers: { Authorization: `Bearer ${token}` }
     };
 
+    const changeVersion = useRef(null); // change feed version the lists are current as of
+
+    useEffect(() => {
+        const load = async () => {
+            // Take the feed version before the lists so no change falls in between
+            await fetchChangeVersion();
+            fetchStats();
+            if (activeTab === 'users' || activeTab === 'overview') fetchUsers(searchTerm);
+            if (activeTab === 'chargers' || activeTab === 'overview') fetchChargers(searchTerm);
+            if (activeTab === 'logs') fetchLogs();
+        };
+        load();
+    }, [activeTab, searchTerm]);
+
     useEffect(() => {
-        fetchStats();
-        if (activeTab === 'users' || activeTab === 'overview') fetchUsers(searchTerm);
-        if (activeTab === 'chargers' || activeTab === 'overview') fetchChargers(searchTerm);
-        if (activeTab === 'logs') fetchLogs();
+        const interval = setInterval(syncChanges, 15000);
+        return () => clearInterval(interval);
     }, [activeTab, searchTerm]);
 
+    const fetchChangeVersion = async () => {
+        try {
+            const res = await axios.get(`${import.meta.env.VITE_API_URL}/api/admin/changes`, axiosConfig);
+            changeVersion.current = res.data.version;
+        } catch (err) {
+            changeVersion.current = null;
+            console.error('Change feed unavailable, live updates paused', err);
+        }
+    };
+
+    // Patches the loaded lists with the users and chargers changed since the last sync
+    const syncChanges = async () => {
+        if (changeVersion.current === null || activeTab === 'logs') return;
+        try {
+            const fullUrl = `${import.meta.env.VITE_API_URL}/api/admin/changes`;
+            const res = await axios.get(fullUrl, { ...axiosConfig, params: { since: changeVersion.current } });
+            const feed = res.data;
+            changeVersion.current = feed.version;
+            if (feed.resync) {
+                fetchStats();
+                fetchUsers(searchTerm);
+                fetchChargers(searchTerm);
+                return;
+            }
+            const usersChanged = feed.users.length > 0 || feed.deletedUserIds.length > 0;
+            const chargersChanged = feed.chargers.length > 0 || feed.deletedChargerIds.length > 0;
+            if (usersChanged) setUsers(prev => mergeChanges(prev, feed.users, feed.deletedUserIds, !searchTerm));
+            if (chargersChanged) setChargers(prev => mergeChanges(prev, feed.chargers, feed.deletedChargerIds, !searchTerm));
+            if (usersChanged || chargersChanged) fetchStats();
+            if (feed.hasMore) syncChanges();
+        } catch (err) {
+            console.error('Error syncing changes', err);
+        }
+    };
+
     const fetchStats = async () => {
         try {
             const fullUrl = `${import.meta.env.VITE_API_URL}/api/admin/stats`;
@@ -1,10 +1,24 @@
-import { useState, useEffect } from 'react';
+import { useState, useEffect, useRef } from 'react';
 import axios from 'axios';
 import MapComponent from '../components/Map';
 import { LogOut, Zap, Search, Navigation, MapPin, LocateFixed } from 'lucide-react';
 
+// Applies a change feed page to a list: replaces changed rows, drops deleted ones, appends new ones
+const mergeChanges = (list, changed, deletedIds) => {
+    const removed = new Set(deletedIds);
+    const updates = new Map(changed.map(item => [item.id, item]));
+    const merged = list.filter(item => !removed.has(item.id)).map(item => {
+        const update = updates.get(item.id);
+        updates.delete(item.id);
+        return update || item;
+    });
+    return [...merged, ...updates.values()];
+};
+
 const Home = ({ user, logout }) => {
     const [chargers, setChargers] = useState([]);
+    const [reloadKey, setReloadKey] = useState(0);
+    const changeVersion = useRef(null); // change feed version the charger list is current as of
     const [searchInput, setSearchInput] = useState('');
     const [filter, setFilter] = useState('');
     const [suggestions, setSuggestions] = useState([]);
@@ -141,9 +155,19 @@ const Home = ({ user, logout }) => {
                         lng: mapCenter[1]
                     }
                 };
+                // Take the feed version before the list so no change falls in between
+                changeVersion.current = null;
+                let version = null;
+                try {
+                    const feed = await axios.get(`${import.meta.env.VITE_API_URL}/api/chargers/changes`, config);
+                    version = feed.data.version;
+                } catch (error) {
+                    console.warn("Change feed unavailable, live updates paused", error);
+                }
                 const fullUrl = `${import.meta.env.VITE_API_URL}/api/chargers`;
                 const response = await axios.get(fullUrl, config);
                 setChargers(response.data);
+                changeVersion.current = version;
             } catch (error) {
                 console.error("Error fetching chargers", error);
             } finally {
@@ -153,6 +177,36 @@ const Home = ({ user, logout }) => {
 
         const timer = setTimeout(fetchChargers, 500); // 500ms debounce to let GPS settle
         return () => clearTimeout(timer);
+    }, [user, mapCenter, reloadKey]);
+
+    useEffect(() => {
+        if (!mapCenter) return;
+
+        // Poll only the chargers changed since the last poll instead of reloading the list
+        const pollChanges = async () => {
+            if (changeVersion.current === null) return;
+            try {
+                const response = await axios.get(`${import.meta.env.VITE_API_URL}/api/chargers/changes`, {
+                    headers: { Authorization: `Bearer ${user.token}` },
+                    params: { since: changeVersion.current, lat: mapCenter[0], lng: mapCenter[1] }
+                });
+                const feed = response.data;
+                if (feed.resync) {
+                    setReloadKey(key => key + 1);
+                    return;
+                }
+                changeVersion.current = feed.version;
+                if (feed.chargers.length > 0 || feed.deletedChargerIds.length > 0) {
+                    setChargers(prev => mergeChanges(prev, feed.chargers, feed.deletedChargerIds));
+                }
+                if (feed.hasMore) pollChanges();
+            } catch (error) {
+                console.error("Error polling charger changes", error);
+            }
+        };
+
+        const interval = setInterval(pollChanges, 30000);
+        return () => clearInterval(interval);
     }, [user, mapCenter]);
 
     useEffect(() => {
@@ -163,22 +217,18 @@ const Home = ({ user, logout }) => {
             }
 
             try {
-                let url = `https://photon.komoot.io/api/?q=${searchInput}&limit=5`;
+                const params = { q: searchInput, limit: 5 };
                 if (userLocation) {
-                    url += `&lat=${userLocation[0]}&lon=${userLocation[1]}`;
+                    params.lat = userLocation[0];
+                    params.lng = userLocation[1];
                 }
-                const response = await axios.get(url);
-                if (response.data && response.data.features) {
-                    const formatted = response.data.features.map(f => ({
-                        id: f.properties.osm_id,
-                        display_name: [
-                            f.properties.name,
-                            f.properties.city,
-                            f.properties.state,
-                            f.properties.country
-                        ].filter(Boolean).join(', '),
-                        lat: f.geometry.coordinates[1],
-                        lon: f.geometry.coordinates[0]
+                const response = await axios.get(`${import.meta.env.VITE_API_URL}/api/places`, { params });
+                if (Array.isArray(response.data)) {
+                    const formatted = response.data.map(p => ({
+                        id: p.id,
+                        display_name: [p.name, p.detail].filter(Boolean).join(', '),
+                        lat: p.latitude,
+                        lon: p.longitude
                     }));
                     setSuggestions(formatted);
                 }